@@ -0,0 +1,25 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.6.5"
+}
+
+// this project is not published so not configured in the root project
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    jmh(project(":file"))
+    jmh(project(":writer"))
+}
+
+jmh {
+    // shows allocation rate of each benchmark
+    profilers.add("gc")
+}
@@ -0,0 +1,77 @@
+package com.anatawa12.asar4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * The generator of asar files used by benchmarks.
+ */
+final class BenchmarkArchives {
+    // the number of files in a directory
+    static final int FILES_PER_DIRECTORY = 100;
+    // the number of links in /links
+    static final int LINK_CHAIN = 8;
+    // the depth of /deep
+    static final int DEPTH = 16;
+
+    private BenchmarkArchives() {
+    }
+
+    /**
+     * Creates an asar file with {@code files} files of {@code fileSize} bytes.
+     * The files are named {@link #fileName(int)} and placed in directories of
+     * {@link #FILES_PER_DIRECTORY} files. In addition, there are a file nested {@link #DEPTH}
+     * directories named {@link #deepName()} and a chain of {@link #LINK_CHAIN} links
+     * from {@link #linkName()} to the first file.
+     *
+     * @param files    the number of files
+     * @param fileSize the size of each file
+     * @return the bytes of the asar file
+     */
+    static byte[] create(int files, int fileSize) throws IOException {
+        Random random = new Random(files ^ fileSize);
+        byte[] contents = new byte[fileSize];
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (AsarOutputStream asar = new AsarOutputStream(out)) {
+            for (int i = 0; i < files; i++) {
+                random.nextBytes(contents);
+                asar.putNextEntry(new AsarEntry(fileName(i)));
+                asar.write(contents);
+            }
+            asar.putNextEntry(new AsarEntry(deepName()));
+            asar.write(contents);
+            // /links/l0 -> /dir0/file0.bin, /links/l1 -> l0, ...
+            asar.addLink("/links/l0", fileName(0));
+            for (int i = 1; i < LINK_CHAIN; i++) {
+                asar.addLink("/links/l" + i, "l" + (i - 1));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    static Path createFile(int files, int fileSize) throws IOException {
+        Path path = Files.createTempFile("asar4j-benchmark", ".asar");
+        path.toFile().deleteOnExit();
+        Files.write(path, create(files, fileSize));
+        return path;
+    }
+
+    static String fileName(int index) {
+        return "/dir" + index / FILES_PER_DIRECTORY + "/file" + index + ".bin";
+    }
+
+    static String linkName() {
+        return "/links/l" + (LINK_CHAIN - 1);
+    }
+
+    static String deepName() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < DEPTH; i++) {
+            builder.append("/deep").append(i);
+        }
+        return builder.append("/file.bin").toString();
+    }
+}
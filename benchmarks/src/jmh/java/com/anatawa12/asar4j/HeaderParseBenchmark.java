@@ -0,0 +1,60 @@
+package com.anatawa12.asar4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opening asar files, which reads and parses the header.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeaderParseBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int entries;
+
+    // 0 for eager, 1 for OPEN_LAZY and 2 for OPEN_COMPACT
+    @Param({"0", "1", "2"})
+    public int mode;
+
+    private Path path;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setup() throws IOException {
+        path = BenchmarkArchives.createFile(entries, 16);
+        buffer = ByteBuffer.wrap(BenchmarkArchives.create(entries, 16));
+    }
+
+    @Benchmark
+    public AsarFile openPath() throws IOException {
+        // size() is not used because it reads whole of the header in lazy mode
+        try (AsarFile file = new AsarFile(path, mode)) {
+            return file;
+        }
+    }
+
+    @Benchmark
+    public AsarFile openBuffer() throws IOException {
+        try (AsarFile file = new AsarFile(buffer.duplicate(), mode)) {
+            return file;
+        }
+    }
+}
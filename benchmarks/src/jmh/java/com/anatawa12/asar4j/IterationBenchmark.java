@@ -0,0 +1,70 @@
+package com.anatawa12.asar4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Iterating all entries of an asar file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IterationBenchmark {
+    @Param({"1000", "10000"})
+    public int entries;
+
+    // 0 for eager, 1 for OPEN_LAZY and 2 for OPEN_COMPACT
+    @Param({"0", "1", "2"})
+    public int mode;
+
+    private AsarFile file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = new AsarFile(ByteBuffer.wrap(BenchmarkArchives.create(entries, 16)), mode);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        file.close();
+    }
+
+    @Benchmark
+    public void entries(Blackhole blackhole) {
+        Enumeration<? extends AsarEntry> entries = file.entries();
+        while (entries.hasMoreElements()) {
+            blackhole.consume(entries.nextElement().getName());
+        }
+    }
+
+    @Benchmark
+    public void stream(Blackhole blackhole) {
+        file.stream().forEach(entry -> blackhole.consume(entry.getName()));
+    }
+
+    @Benchmark
+    public void filesByOffset(Blackhole blackhole) {
+        for (AsarEntry entry : file.filesByOffset()) {
+            blackhole.consume(entry.getName());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.anatawa12.asar4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up entries by name with {@link AsarFile#getEntry(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+    private static final int NAMES = 1024;
+
+    @Param({"10000"})
+    public int entries;
+
+    // 0 for eager, 1 for OPEN_LAZY and 2 for OPEN_COMPACT
+    @Param({"0", "1", "2"})
+    public int mode;
+
+    private AsarFile file;
+    private String[] hits;
+    private String[] misses;
+    private String link;
+    private String deep;
+    private int index;
+
+    @Setup
+    public void setup() throws IOException {
+        file = new AsarFile(ByteBuffer.wrap(BenchmarkArchives.create(entries, 16)), mode);
+        // the names are spread over the archive and not interned
+        hits = new String[NAMES];
+        misses = new String[NAMES];
+        for (int i = 0; i < NAMES; i++) {
+            int entry = (int) ((long) i * entries / NAMES);
+            hits[i] = new String(BenchmarkArchives.fileName(entry));
+            misses[i] = BenchmarkArchives.fileName(entry) + ".missing";
+        }
+        link = BenchmarkArchives.linkName();
+        deep = BenchmarkArchives.deepName();
+        // lazy mode reads directories at the first lookup
+        for (String hit : hits) {
+            if (file.getEntry(hit) == null) throw new IllegalStateException(hit + " not found");
+        }
+        if (file.getEntry(link) == null) throw new IllegalStateException(link + " not found");
+        if (file.getEntry(deep) == null) throw new IllegalStateException(deep + " not found");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        file.close();
+    }
+
+    private int next() {
+        return index = (index + 1) & (NAMES - 1);
+    }
+
+    @Benchmark
+    public AsarEntry hit() {
+        return file.getEntry(hits[next()]);
+    }
+
+    @Benchmark
+    public AsarEntry miss() {
+        return file.getEntry(misses[next()]);
+    }
+
+    @Benchmark
+    public AsarEntry deepPath() {
+        return file.getEntry(deep);
+    }
+
+    @Benchmark
+    public AsarEntry linkChain() {
+        return file.getEntry(link);
+    }
+}
@@ -0,0 +1,205 @@
+package com.anatawa12.asar4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the contents of entries from one or more threads sharing one {@link AsarFile}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReadBenchmark {
+    // about 16 MiB of contents for each size
+    private static final int TOTAL_SIZE = 16 << 20;
+
+    @State(Scope.Benchmark)
+    public static class Archive {
+        @Param({"1024", "1048576"})
+        public int size;
+
+        // channel for FileChannel, locked for the channel which is not a FileChannel
+        // so read with the lock, and mapped for the file mapped with openMapped
+        @Param({"channel", "locked", "mapped"})
+        public String source;
+
+        AsarFile file;
+        AsarEntry[] entries;
+
+        @Setup
+        public void setup() throws IOException {
+            int count = TOTAL_SIZE / size;
+            Path path = BenchmarkArchives.createFile(count, size);
+            switch (source) {
+                case "channel":
+                    file = new AsarFile(path);
+                    break;
+                case "locked":
+                    file = new AsarFile(new LockedChannel(FileChannel.open(path, StandardOpenOption.READ)));
+                    break;
+                case "mapped":
+                    file = AsarFile.openMapped(path);
+                    break;
+                default:
+                    throw new IllegalArgumentException(source);
+            }
+            entries = new AsarEntry[count];
+            for (int i = 0; i < count; i++) {
+                entries[i] = file.getEntry(BenchmarkArchives.fileName(i));
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            file.close();
+        }
+    }
+
+    // hides FileChannel so that AsarFile reads with the lock
+    private static final class LockedChannel implements SeekableByteChannel {
+        private final SeekableByteChannel channel;
+
+        LockedChannel(SeekableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        byte[] buffer;
+        ByteBuffer direct;
+        int index;
+
+        @Setup
+        public void setup(Archive archive) {
+            buffer = new byte[8192];
+            direct = ByteBuffer.allocateDirect(archive.size);
+            // the threads start from different entries
+            index = (int) (Thread.currentThread().getId() % archive.entries.length);
+        }
+
+        AsarEntry next(Archive archive) {
+            if (++index == archive.entries.length) index = 0;
+            return archive.entries[index];
+        }
+    }
+
+    private static long readStream(Archive archive, Reader reader) throws IOException {
+        long total = 0;
+        try (InputStream stream = archive.file.getInputStream(reader.next(archive))) {
+            int read;
+            while ((read = stream.read(reader.buffer)) != -1) total += read;
+        }
+        return total;
+    }
+
+    private static long readPositional(Archive archive, Reader reader) throws IOException {
+        AsarEntry entry = reader.next(archive);
+        ByteBuffer dst = reader.direct;
+        dst.clear();
+        long position = 0;
+        while (position < entry.getSize()) {
+            int read = archive.file.read(entry, position, dst);
+            if (read == -1) break;
+            position += read;
+        }
+        return position;
+    }
+
+    @Benchmark
+    public long inputStream(Archive archive, Reader reader) throws IOException {
+        return readStream(archive, reader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long inputStream4Threads(Archive archive, Reader reader) throws IOException {
+        return readStream(archive, reader);
+    }
+
+    @Benchmark
+    public byte[] readAllBytes(Archive archive, Reader reader) throws IOException {
+        return archive.file.readAllBytes(reader.next(archive));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] readAllBytes4Threads(Archive archive, Reader reader) throws IOException {
+        return archive.file.readAllBytes(reader.next(archive));
+    }
+
+    @Benchmark
+    public long positional(Archive archive, Reader reader) throws IOException {
+        return readPositional(archive, reader);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long positional4Threads(Archive archive, Reader reader) throws IOException {
+        return readPositional(archive, reader);
+    }
+}
@@ -0,0 +1,114 @@
+package com.anatawa12.asar4j;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing files with {@link AsarOutputStream} and writing the header with {@link JsonWriter}.
+ * The outputs are discarded so only the cost of asar4j is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+    @Param({"100", "10000"})
+    public int entries;
+
+    @Param({"1024", "65536"})
+    public int size;
+
+    private String[] names;
+    private byte[] contents;
+    private String[] basenames;
+
+    @Setup
+    public void setup() {
+        names = new String[entries];
+        basenames = new String[entries];
+        for (int i = 0; i < entries; i++) {
+            names[i] = BenchmarkArchives.fileName(i);
+            // some of names need escaping
+            basenames[i] = i % 10 == 0 ? "file\\" + i + "\".bin" : "file" + i + ".bin";
+        }
+        contents = new byte[size];
+        new Random(0).nextBytes(contents);
+    }
+
+    @Benchmark
+    public void pack() throws IOException {
+        try (AsarOutputStream asar = new AsarOutputStream(new NullOutputStream())) {
+            for (String name : names) {
+                asar.putNextEntry(new AsarEntry(name));
+                asar.write(contents);
+            }
+        }
+    }
+
+    @Benchmark
+    public void jsonWriter() throws IOException {
+        // a header of the files on the root directory written like AsarOutputStream
+        try (JsonWriter writer = new JsonWriter(new NullWriter())) {
+            writer.write("{\"files\":{");
+            for (int i = 0; i < basenames.length; i++) {
+                if (i != 0) writer.write(',');
+                writer.writeKey(basenames[i]);
+                writer.write("{\"size\":");
+                writer.write(Integer.toString(size));
+                writer.write(",\"offset\":");
+                writer.writeString(Long.toString((long) i * size));
+                writer.write('}');
+            }
+            writer.write("}}");
+        }
+    }
+
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    }
+
+    private static final class NullWriter extends Writer {
+        @Override
+        public void write(int c) {
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
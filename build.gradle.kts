@@ -9,7 +9,8 @@ plugins {
 group = "com.anatawa12.asar4j"
 version = property("version")!!
 
-subprojects {
+// benchmarks are not published. see benchmarks/build.gradle.kts
+configure(subprojects.filter { it.name != "benchmarks" }) {
     apply(plugin = "java-library")
     apply(plugin = "maven-publish")
     apply(plugin = "signing")
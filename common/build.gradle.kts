@@ -0,0 +1,18 @@
+// classes for java 11 or later in META-INF/versions/11 of multi-release jar
+val java11 by sourceSets.creating {
+    java.srcDir("src/main/java11")
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(java11.compileJavaTaskName) {
+    sourceCompatibility = "11"
+    targetCompatibility = "11"
+    options.release.set(11)
+}
+
+tasks.jar {
+    into("META-INF/versions/11") {
+        from(java11.output)
+    }
+    manifest.attributes("Multi-Release" to "true")
+}
@@ -9,10 +9,20 @@ class AsarDirectoryEntry extends AsarEntry {
     // if java.util.HashMap, this is mutable.
     // if not, this must be immutable.
     private Map<String, AsarEntry> entries;
+    // true if entries.get calls equals of the argument so NameRegion can be used as the key.
+    private final boolean regionLookup;
 
     AsarDirectoryEntry(String name, Map<String, AsarEntry> files) {
         super(name);
         entries = files;
+        regionLookup = files instanceof HashMap<?, ?>;
+    }
+
+    // files must be java.util.HashMap or the unmodifiable view of it.
+    AsarDirectoryEntry(AsarEntry parent, String basename, Map<String, AsarEntry> files) {
+        super(parent, basename);
+        entries = files;
+        regionLookup = true;
     }
 
     @Override
@@ -30,6 +40,11 @@ class AsarDirectoryEntry extends AsarEntry {
         return entries.get(name);
     }
 
+    @Override
+    AsarEntry getChild(NameRegion name) throws IllegalStateException {
+        return entries.get(regionLookup ? name : name.toString());
+    }
+
     @Override
     public boolean isExecutable() {
         throw new IllegalStateException("this is not FILE, but DIRECTORY");
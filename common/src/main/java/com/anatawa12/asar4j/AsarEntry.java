@@ -14,10 +14,15 @@ import java.util.List;
  * </p>
  */
 public class AsarEntry implements Cloneable {
+    // the full name if parent is null, the basename if parent is not null,
+    // or null if the name is computed by subclass.
     private final String name;
+    private final AsarEntry parent;
     private boolean executable;
     private int size = -1;
     long offset = -1;
+    AsarIntegrity integrity;
+    boolean unpacked;
     Object owner;
 
     /**
@@ -27,13 +32,36 @@ public class AsarEntry implements Cloneable {
      */
     public AsarEntry(String name) {
         this.name = checkName(normalizeName(name));
+        this.parent = null;
+    }
+
+    /**
+     * new a entry in the directory. the name will be computed from parent and basename.
+     *
+     * @param parent   the parent directory entry.
+     * @param basename the basename. this must be valid component of normalized name.
+     */
+    AsarEntry(AsarEntry parent, String basename) {
+        this.name = basename;
+        this.parent = parent;
+    }
+
+    /**
+     * new a entry with name computed by {@link #computeName()} and {@link #computeBasename()}.
+     */
+    AsarEntry() {
+        this.name = null;
+        this.parent = null;
     }
 
     public AsarEntry(AsarEntry entry) {
-        this.name = entry.name;
+        this.name = entry.getName();
+        this.parent = null;
         this.executable = entry.executable;
         this.size = entry.size;
         this.offset = entry.offset;
+        this.integrity = entry.getIntegrity();
+        this.unpacked = entry.unpacked;
         this.owner = null;
     }
 
@@ -133,9 +161,23 @@ public class AsarEntry implements Cloneable {
      * @return the full name of this entry
      */
     public final String getName() {
+        if (parent != null) {
+            StringBuilder builder = new StringBuilder();
+            appendName(builder);
+            return builder.toString();
+        }
+        if (name == null) return computeName();
         return name;
     }
 
+    private void appendName(StringBuilder builder) {
+        if (parent != null) {
+            parent.appendName(builder);
+            builder.append('/');
+        }
+        builder.append(name == null ? computeName() : name);
+    }
+
     /**
      * Returns the basename of this entry.
      *
@@ -143,11 +185,23 @@ public class AsarEntry implements Cloneable {
      * @throws IllegalStateException if this entry is root directory entry.
      */
     public final String getBasename() {
+        if (parent != null) return name;
+        if (name == null) return computeBasename();
         if (name.isEmpty())
             throw new IllegalStateException("root directory entry doesn't have basename");
         return name.substring(name.lastIndexOf('/') + 1);
     }
 
+    // for entries created with AsarEntry()
+    String computeName() {
+        throw new AssertionError("computeName is not overridden");
+    }
+
+    // for entries created with AsarEntry()
+    String computeBasename() {
+        throw new AssertionError("computeBasename is not overridden");
+    }
+
     /**
      * type of this entry.
      *
@@ -203,6 +257,25 @@ public class AsarEntry implements Cloneable {
         this.executable = executable;
     }
 
+    /**
+     * the integrity of this file in the header.
+     *
+     * @return the integrity of this file or null if not specified.
+     */
+    public AsarIntegrity getIntegrity() {
+        return integrity;
+    }
+
+    /**
+     * is this entry unpacked. the contents of unpacked files are not in the asar file but
+     * in the {@code .asar.unpacked} directory next to the asar file.
+     *
+     * @return is this entry unpacked
+     */
+    public boolean isUnpacked() {
+        return unpacked;
+    }
+
     // type specific
 
     // LINK
@@ -236,6 +309,11 @@ public class AsarEntry implements Cloneable {
         throw new IllegalStateException("this is not DIRECTORY, is " + getType());
     }
 
+    // gets child entry with basename without creating String. the region must not be retained.
+    AsarEntry getChild(NameRegion name) throws IllegalStateException {
+        return getChild(name.toString());
+    }
+
     /**
      * clones this instance. you may need to override this.
      *
@@ -0,0 +1,110 @@
+package com.anatawa12.asar4j;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * The integrity of a file in the header written by newer electron/asar.
+ * This has the hash of the whole of the file and the hashes of each block of the file.
+ */
+public final class AsarIntegrity {
+    private final String algorithm;
+    private final int blockSize;
+    private final int hashLength;
+    // the hash of the whole of the file followed by hashes of blocks
+    private final byte[] hashes;
+
+    AsarIntegrity(String algorithm, int blockSize, int hashLength, byte[] hashes) {
+        if (blockSize <= 0) throw new IllegalArgumentException("non-positive block size");
+        if (hashLength <= 0 || hashes.length % hashLength != 0 || hashes.length == 0)
+            throw new IllegalArgumentException("invalid hash length");
+        this.algorithm = algorithm;
+        this.blockSize = blockSize;
+        this.hashLength = hashLength;
+        this.hashes = hashes;
+    }
+
+    /**
+     * @return the name of algorithm in the header like {@code SHA256}.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the size of each block. the last block may be shorter than this.
+     */
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return the hash of the whole of the file.
+     */
+    public byte[] getHash() {
+        return Arrays.copyOf(hashes, hashLength);
+    }
+
+    /**
+     * @return the number of blocks.
+     */
+    public int getBlockCount() {
+        return hashes.length / hashLength - 1;
+    }
+
+    /**
+     * @param index the index of block.
+     * @return the hash of the block.
+     */
+    public byte[] getBlockHash(int index) {
+        if (index < 0 || index >= getBlockCount()) throw new IndexOutOfBoundsException(String.valueOf(index));
+        int begin = (index + 1) * hashLength;
+        return Arrays.copyOfRange(hashes, begin, begin + hashLength);
+    }
+
+    int hashLength() {
+        return hashLength;
+    }
+
+    // the raw hashes for serialization. must not be modified.
+    byte[] hashes() {
+        return hashes;
+    }
+
+    boolean hashMatches(byte[] digest) {
+        return matches(0, digest);
+    }
+
+    boolean blockMatches(int index, byte[] digest) {
+        return index < getBlockCount() && matches((index + 1) * hashLength, digest);
+    }
+
+    private boolean matches(int begin, byte[] digest) {
+        if (digest.length != hashLength) return false;
+        int result = 0;
+        for (int i = 0; i < hashLength; i++)
+            result |= hashes[begin + i] ^ digest[i];
+        return result == 0;
+    }
+
+    /**
+     * creates new digest for the algorithm.
+     *
+     * @throws AsarException if the algorithm is not supported.
+     */
+    MessageDigest newDigest() throws AsarException {
+        // electron uses names like SHA256 but java uses SHA-256
+        String name = algorithm.matches("SHA\\d+") ? "SHA-" + algorithm.substring(3) : algorithm;
+        try {
+            return MessageDigest.getInstance(name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AsarException("unsupported integrity algorithm: " + algorithm, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AsarIntegrity(" + algorithm + ", blockSize=" + blockSize + ", blocks=" + getBlockCount() + ')';
+    }
+}
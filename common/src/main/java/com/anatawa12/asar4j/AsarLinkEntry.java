@@ -8,6 +8,11 @@ class AsarLinkEntry extends AsarEntry {
         linkTarget = link;
     }
 
+    AsarLinkEntry(AsarEntry parent, String basename, String link) {
+        super(parent, basename);
+        linkTarget = link;
+    }
+
     @Override
     public AsarEntryType getType() {
         return AsarEntryType.LINK;
@@ -0,0 +1,76 @@
+package com.anatawa12.asar4j;
+
+// the mutable region of CharSequence used to look up children without creating substring.
+// hashCode and equals are compatible with String so this can be used as the key of
+// Map<String, ?>.get. because of mutability, this must not be retained.
+final class NameRegion implements CharSequence {
+    private CharSequence sequence;
+    private int begin;
+    private int end;
+    private int hash;
+
+    NameRegion set(CharSequence sequence, int begin, int end) {
+        this.sequence = sequence;
+        this.begin = begin;
+        this.end = end;
+        this.hash = 0;
+        return this;
+    }
+
+    void clear() {
+        sequence = null;
+    }
+
+    @Override
+    public int length() {
+        return end - begin;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return sequence.charAt(begin + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return sequence.subSequence(begin + start, begin + end);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            for (int i = begin; i < end; i++)
+                h = 31 * h + sequence.charAt(i);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof CharSequence)) return false;
+        CharSequence other = (CharSequence) obj;
+        if (other.length() != length()) return false;
+        for (int i = 0; i < length(); i++) {
+            if (other.charAt(i) != sequence.charAt(begin + i)) return false;
+        }
+        return true;
+    }
+
+    // compares with the same order as String.compareTo
+    static int compare(CharSequence a, CharSequence b) {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char ac = a.charAt(i);
+            char bc = b.charAt(i);
+            if (ac != bc) return ac - bc;
+        }
+        return a.length() - b.length();
+    }
+
+    @Override
+    public String toString() {
+        return sequence.subSequence(begin, end).toString();
+    }
+}
@@ -0,0 +1,53 @@
+package com.anatawa12.asar4j.internal;
+
+import com.anatawa12.asar4j.AsarEntry;
+
+import java.nio.file.Path;
+
+/**
+ * The hooks for JDK Flight Recorder events. This is not a public API.
+ * On Java 8, this class does nothing. On Java 11 or later, this class is replaced with the one in
+ * {@code META-INF/versions/11} of the multi-release jar which emits JFR events.
+ * The names are computed only if the event is committed.
+ * The {@code begin} methods return null if the event is disabled so callers should call
+ * {@code end} methods only if the event is not null.
+ */
+public final class AsarEvents {
+    private AsarEvents() {
+    }
+
+    public static Object beginOpen() {
+        return null;
+    }
+
+    public static void endOpen(Object event, Path archive, int mode, long entries) {
+    }
+
+    public static Object beginLookup() {
+        return null;
+    }
+
+    public static void endLookup(Object event, Path archive, CharSequence name, boolean found) {
+    }
+
+    public static Object beginRead() {
+        return null;
+    }
+
+    public static void endRead(Object event, Path archive, AsarEntry entry, long offset, long bytes) {
+    }
+
+    public static Object beginWrite() {
+        return null;
+    }
+
+    public static void endWrite(Object event, long headerBytes, long bodyBytes) {
+    }
+
+    public static Object beginCacheLoad() {
+        return null;
+    }
+
+    public static void endCacheLoad(Object event, String url, boolean copied) {
+    }
+}
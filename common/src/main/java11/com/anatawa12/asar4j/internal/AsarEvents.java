@@ -0,0 +1,220 @@
+package com.anatawa12.asar4j.internal;
+
+import com.anatawa12.asar4j.AsarEntry;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+import java.nio.file.Path;
+
+/**
+ * The hooks for JDK Flight Recorder events. This is not a public API.
+ * This is the implementation for Java 11 or later which emits JFR events if the {@code jdk.jfr}
+ * module is in the runtime.
+ * The {@code begin} methods return null if the event is disabled so callers should call
+ * {@code end} methods only if the event is not null.
+ * The names are computed only if the event is committed.
+ */
+public final class AsarEvents {
+    // the runtime image made by jlink may not have jdk.jfr
+    private static final boolean AVAILABLE = ModuleLayer.boot().findModule("jdk.jfr").isPresent();
+
+    private AsarEvents() {
+    }
+
+    public static Object beginOpen() {
+        return AVAILABLE ? Jfr.beginOpen() : null;
+    }
+
+    public static void endOpen(Object event, Path archive, int mode, long entries) {
+        Jfr.endOpen(event, archive, mode, entries);
+    }
+
+    public static Object beginLookup() {
+        return AVAILABLE ? Jfr.beginLookup() : null;
+    }
+
+    public static void endLookup(Object event, Path archive, CharSequence name, boolean found) {
+        Jfr.endLookup(event, archive, name, found);
+    }
+
+    public static Object beginRead() {
+        return AVAILABLE ? Jfr.beginRead() : null;
+    }
+
+    public static void endRead(Object event, Path archive, AsarEntry entry, long offset, long bytes) {
+        Jfr.endRead(event, archive, entry, offset, bytes);
+    }
+
+    public static Object beginWrite() {
+        return AVAILABLE ? Jfr.beginWrite() : null;
+    }
+
+    public static void endWrite(Object event, long headerBytes, long bodyBytes) {
+        Jfr.endWrite(event, headerBytes, bodyBytes);
+    }
+
+    public static Object beginCacheLoad() {
+        return AVAILABLE ? Jfr.beginCacheLoad() : null;
+    }
+
+    public static void endCacheLoad(Object event, String url, boolean copied) {
+        Jfr.endCacheLoad(event, url, copied);
+    }
+
+    private static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    // all classes of jdk.jfr are used only in this class so that
+    // AsarEvents can be loaded without jdk.jfr
+    private static final class Jfr {
+        // EventType.isEnabled doesn't allocate event object for disabled events
+        private static final EventType OPEN = EventType.getEventType(OpenEvent.class);
+        private static final EventType LOOKUP = EventType.getEventType(LookupEvent.class);
+        private static final EventType READ = EventType.getEventType(ReadEvent.class);
+        private static final EventType WRITE = EventType.getEventType(WriteEvent.class);
+        private static final EventType CACHE_LOAD = EventType.getEventType(CacheLoadEvent.class);
+
+        private static <E extends Event> E begin(E event) {
+            event.begin();
+            return event;
+        }
+
+        static Object beginOpen() {
+            return OPEN.isEnabled() ? begin(new OpenEvent()) : null;
+        }
+
+        static void endOpen(Object event, Path archive, int mode, long entries) {
+            OpenEvent open = (OpenEvent) event;
+            open.end();
+            if (!open.shouldCommit()) return;
+            open.archive = AsarEvents.toString(archive);
+            open.mode = mode;
+            open.entries = entries;
+            open.commit();
+        }
+
+        static Object beginLookup() {
+            return LOOKUP.isEnabled() ? begin(new LookupEvent()) : null;
+        }
+
+        static void endLookup(Object event, Path archive, CharSequence name, boolean found) {
+            LookupEvent lookup = (LookupEvent) event;
+            lookup.end();
+            if (!lookup.shouldCommit()) return;
+            lookup.archive = AsarEvents.toString(archive);
+            lookup.name = name.toString();
+            lookup.found = found;
+            lookup.commit();
+        }
+
+        static Object beginRead() {
+            return READ.isEnabled() ? begin(new ReadEvent()) : null;
+        }
+
+        static void endRead(Object event, Path archive, AsarEntry entry, long offset, long bytes) {
+            ReadEvent read = (ReadEvent) event;
+            read.end();
+            if (!read.shouldCommit()) return;
+            read.archive = AsarEvents.toString(archive);
+            read.entry = entry == null ? null : entry.getName();
+            read.offset = offset;
+            read.bytes = bytes;
+            read.commit();
+        }
+
+        static Object beginWrite() {
+            return WRITE.isEnabled() ? begin(new WriteEvent()) : null;
+        }
+
+        static void endWrite(Object event, long headerBytes, long bodyBytes) {
+            WriteEvent write = (WriteEvent) event;
+            write.end();
+            if (!write.shouldCommit()) return;
+            write.headerBytes = headerBytes;
+            write.bodyBytes = bodyBytes;
+            write.commit();
+        }
+
+        static Object beginCacheLoad() {
+            return CACHE_LOAD.isEnabled() ? begin(new CacheLoadEvent()) : null;
+        }
+
+        static void endCacheLoad(Object event, String url, boolean copied) {
+            CacheLoadEvent load = (CacheLoadEvent) event;
+            load.end();
+            if (!load.shouldCommit()) return;
+            load.url = url;
+            load.copied = copied;
+            load.commit();
+        }
+    }
+
+    @Name("com.anatawa12.asar4j.Open")
+    @Label("Asar Open")
+    @Category("asar4j")
+    static final class OpenEvent extends Event {
+        @Label("Archive")
+        String archive;
+        @Label("Mode")
+        int mode;
+        @Label("Entries")
+        long entries;
+    }
+
+    @Name("com.anatawa12.asar4j.Lookup")
+    @Label("Asar Entry Lookup")
+    @Category("asar4j")
+    @Threshold("1 ms")
+    static final class LookupEvent extends Event {
+        @Label("Archive")
+        String archive;
+        @Label("Name")
+        String name;
+        @Label("Found")
+        boolean found;
+    }
+
+    @Name("com.anatawa12.asar4j.Read")
+    @Label("Asar Read")
+    @Category("asar4j")
+    @Threshold("1 ms")
+    static final class ReadEvent extends Event {
+        @Label("Archive")
+        String archive;
+        @Label("Entry")
+        String entry;
+        @Label("Offset")
+        long offset;
+        @Label("Bytes Read")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("com.anatawa12.asar4j.Write")
+    @Label("Asar Write")
+    @Category("asar4j")
+    static final class WriteEvent extends Event {
+        @Label("Header Size")
+        @DataAmount
+        long headerBytes;
+        @Label("Body Size")
+        @DataAmount
+        long bodyBytes;
+    }
+
+    @Name("com.anatawa12.asar4j.CacheLoad")
+    @Label("Asar URL Cache Load")
+    @Category("asar4j")
+    static final class CacheLoadEvent extends Event {
+        @Label("URL")
+        String url;
+        @Label("Copied To Temporary File")
+        boolean copied;
+    }
+}
@@ -3,6 +3,8 @@ package com.anatawa12.asar4j;
 import com.google.common.collect.ImmutableList;
 import org.junit.jupiter.api.Test;
 
+import java.util.HashMap;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -69,6 +71,17 @@ class AsarEntryTest {
         assertEquals("test.txt", new AsarEntry("directory/test.txt").getBasename());
     }
 
+    @Test
+    void parentAndBasename() {
+        AsarEntry root = new AsarDirectoryEntry("", new HashMap<>());
+        AsarEntry directory = new AsarDirectoryEntry(root, "directory", new HashMap<>());
+        AsarEntry file = new AsarEntry(directory, "test.txt");
+        assertEquals("/directory", directory.getName());
+        assertEquals("/directory/test.txt", file.getName());
+        assertEquals("test.txt", file.getBasename());
+        assertEquals("/directory/test.txt", new AsarEntry(file).getName());
+    }
+
     private static final NormalizeCheck[] normalizeChecks = new NormalizeCheck[]{
             new NormalizeCheck("/", ""),
             new NormalizeCheck("file.txt", "/file.txt"),
@@ -1,3 +1,29 @@
 dependencies {
     api(project(":common"))
 }
+
+// classes for java 9 or later in META-INF/versions/9 of multi-release jar
+val java9 by sourceSets.creating {
+    java.srcDir("src/main/java9")
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+
+tasks.named<JavaCompile>(java9.compileJavaTaskName) {
+    sourceCompatibility = "9"
+    targetCompatibility = "9"
+    options.release.set(9)
+}
+
+tasks.jar {
+    into("META-INF/versions/9") {
+        from(java9.output)
+    }
+    manifest.attributes("Multi-Release" to "true")
+}
+
+// EntryPublisher is not in the main source set but should be in the sources jar
+tasks.named<Jar>("sourcesJar") {
+    into("META-INF/versions/9") {
+        from(java9.allSource)
+    }
+}
@@ -0,0 +1,159 @@
+package com.anatawa12.asar4j;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The names of asar file entries in the order of the first access.
+ * The profile recorded with {@link AsarFile#recordAccess(AccessProfile)} can be saved to a file
+ * and used to prefetch the contents with {@link AsarFile#prefetch(AccessProfile)} on later opens.
+ */
+public final class AccessProfile {
+    /*
+     * profile file format: UTF-8 text.
+     *
+     * # asar4j access profile v1
+     * /name/of/first/entry
+     * /name/of/second/entry
+     */
+    private static final String HEADER = "# asar4j access profile v1";
+
+    // guarded by this
+    private final Set<String> names = new LinkedHashSet<>();
+    // the accesses not resolved to names yet with the order of the first access.
+    // names are resolved when read so recording doesn't take lock nor compute names.
+    private final ConcurrentHashMap<Object, Long> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Creates an empty profile.
+     */
+    public AccessProfile() {
+    }
+
+    /**
+     * Reads the profile written with {@link #write(Path)}.
+     *
+     * @param path the path to profile file.
+     * @return the profile.
+     * @throws IOException if an I/O error has occurred or the file is not a profile.
+     */
+    public static AccessProfile read(Path path) throws IOException {
+        AccessProfile profile = new AccessProfile();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine()))
+                throw new IOException("not a asar4j access profile: " + path);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("/"))
+                    profile.names.add(line);
+            }
+        }
+        return profile;
+    }
+
+    /**
+     * Writes this profile to the file atomically if possible.
+     *
+     * @param path the path to profile file.
+     * @throws IOException if an I/O error has occurred
+     */
+    public void write(Path path) throws IOException {
+        List<String> names = getNames();
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.newLine();
+                for (String name : names) {
+                    // names with line break cannot be recorded
+                    if (name.indexOf('\n') != -1 || name.indexOf('\r') != -1) continue;
+                    writer.write(name);
+                    writer.newLine();
+                }
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return the names of entries in the order of the first access.
+     */
+    public synchronized List<String> getNames() {
+        resolvePending();
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * @return the number of recorded entries.
+     */
+    public synchronized int size() {
+        resolvePending();
+        return names.size();
+    }
+
+    void record(AsarEntry entry) {
+        // entries of compact mode are created for each lookup so use the position in the table
+        Object key = entry instanceof AsarTableEntry ? new TableIndex((AsarTableEntry) entry) : entry;
+        if (!pending.containsKey(key))
+            pending.putIfAbsent(key, sequence.getAndIncrement());
+    }
+
+    // moves pending accesses to names in the order of the first access
+    private void resolvePending() {
+        if (pending.isEmpty()) return;
+        List<Map.Entry<Object, Long>> accesses = new ArrayList<>(pending.entrySet());
+        accesses.sort(Map.Entry.comparingByValue());
+        for (Map.Entry<Object, Long> access : accesses) {
+            Object key = access.getKey();
+            names.add(key instanceof TableIndex ? ((TableIndex) key).name() : ((AsarEntry) key).getName());
+            pending.remove(key, access.getValue());
+        }
+    }
+
+    private static final class TableIndex {
+        private final AsarEntryTable table;
+        private final int index;
+
+        TableIndex(AsarTableEntry entry) {
+            this.table = entry.table();
+            this.index = entry.index();
+        }
+
+        String name() {
+            return table.path(index);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TableIndex)) return false;
+            TableIndex that = (TableIndex) o;
+            return table == that.table && index == that.index;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(table) * 31 + index;
+        }
+    }
+}
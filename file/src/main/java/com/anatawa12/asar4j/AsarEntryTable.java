@@ -0,0 +1,602 @@
+package com.anatawa12.asar4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// the compact representation of the entry tree used by OPEN_COMPACT mode.
+// each entry is identified by the index. the root directory is 0 and
+// the index of the parent is always less than the index of children.
+final class AsarEntryTable {
+    static final int TYPE_MASK = 0x3;
+    static final int TYPE_FILE = 0x0;
+    static final int TYPE_DIRECTORY = 0x1;
+    static final int TYPE_LINK = 0x2;
+    static final int FLAG_EXECUTABLE = 0x4;
+    static final int FLAG_UNPACKED = 0x8;
+
+    private final int count;
+    private final IntBuffer flags;
+    // FILE: offset of the body. DIRECTORY: the index of the first child in children.
+    private final LongBuffer offsets;
+    // FILE: size of the body. DIRECTORY: count of children. LINK: id of link target in names.
+    private final IntBuffer sizes;
+    private final IntBuffer parents;
+    private final IntBuffer nameIds;
+    // children of each directory. children of a directory are sorted by name.
+    private final IntBuffer children;
+    // the offset of the integrity in integrityBytes or -1 if not specified.
+    private final IntBuffer integrities;
+    /*
+     * integrities of files. each integrity is in the following format.
+     * int algorithm: id in names
+     * int blockSize
+     * int hashLength
+     * int hashesLength
+     * byte hashes[hashesLength]: the hash of the file followed by hashes of blocks
+     */
+    private final ByteBuffer integrityBytes;
+    // for mapped table, names are decoded from nameBytes when first used.
+    private final String[] names;
+    // UTF-8 names for mapped table. nameOffsets has nameCount + 1 elements. null for heap table.
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+
+    private AsarEntryTable(Builder builder) {
+        count = builder.count;
+        flags = IntBuffer.wrap(Arrays.copyOf(builder.flags, count));
+        offsets = LongBuffer.wrap(Arrays.copyOf(builder.offsets, count));
+        sizes = IntBuffer.wrap(Arrays.copyOf(builder.sizes, count));
+        parents = IntBuffer.wrap(Arrays.copyOf(builder.parents, count));
+        nameIds = IntBuffer.wrap(Arrays.copyOf(builder.nameIds, count));
+        children = IntBuffer.wrap(Arrays.copyOf(builder.children, builder.childrenCount));
+        integrities = IntBuffer.wrap(Arrays.copyOf(builder.integrities, count));
+        integrityBytes = ByteBuffer.wrap(Arrays.copyOf(builder.integrityBytes, builder.integrityLength))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        names = builder.names.toArray(new String[0]);
+        nameOffsets = null;
+        nameBytes = null;
+    }
+
+    /*
+     * binary format. all numbers are in little endian.
+     *
+     * +------------------------------------+
+     * | int count                          |
+     * | int childrenCount                  |
+     * | int nameCount                      |
+     * | int nameBytesLength                |
+     * | int integrityBytesLength           |
+     * +------------------------------------+
+     * | long offsets[count]                |
+     * | int flags[count]                   |
+     * | int sizes[count]                   |
+     * | int parents[count]                 |
+     * | int nameIds[count]                 |
+     * | int integrities[count]             |
+     * | int children[childrenCount]        |
+     * | int nameOffsets[nameCount + 1]     |
+     * | byte nameBytes[nameBytesLength]    |
+     * | byte integrityBytes[...Length]     |
+     * +------------------------------------+
+     */
+
+    private AsarEntryTable(ByteBuffer buffer) throws AsarException {
+        buffer = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE)
+            throw new AsarException("invalid index: too short");
+        count = buffer.getInt();
+        int childrenCount = buffer.getInt();
+        int nameCount = buffer.getInt();
+        int nameBytesLength = buffer.getInt();
+        int integrityBytesLength = buffer.getInt();
+        if (count < 1 || childrenCount < 0 || nameCount < 0 || nameBytesLength < 0 || integrityBytesLength < 0
+                || buffer.remaining() != byteSize(count, childrenCount, nameCount, nameBytesLength,
+                integrityBytesLength) - HEADER_SIZE)
+            throw new AsarException("invalid index: size mismatch");
+        offsets = section(buffer, count * 8).asLongBuffer();
+        flags = section(buffer, count * 4).asIntBuffer();
+        sizes = section(buffer, count * 4).asIntBuffer();
+        parents = section(buffer, count * 4).asIntBuffer();
+        nameIds = section(buffer, count * 4).asIntBuffer();
+        integrities = section(buffer, count * 4).asIntBuffer();
+        children = section(buffer, childrenCount * 4).asIntBuffer();
+        nameOffsets = section(buffer, (nameCount + 1) * 4).asIntBuffer();
+        nameBytes = section(buffer, nameBytesLength);
+        integrityBytes = section(buffer, integrityBytesLength);
+        names = new String[nameCount];
+        validate();
+    }
+
+    // checks all indices and offsets in the mapped table so that broken index is
+    // rejected when mapped instead of failing later with IndexOutOfBoundsException.
+    private void validate() throws AsarException {
+        int nameCount = names.length;
+        int nameBytesLength = nameBytes.capacity();
+        if (nameOffsets.get(0) != 0 || nameOffsets.get(nameCount) != nameBytesLength)
+            throw new AsarException("invalid index: name offsets");
+        for (int i = 0; i < nameCount; i++) {
+            if (nameOffsets.get(i) > nameOffsets.get(i + 1))
+                throw new AsarException("invalid index: name offsets");
+        }
+
+        int childrenCount = children.capacity();
+        int integrityBytesLength = integrityBytes.capacity();
+        // each entry but the root must be a child of exactly one directory
+        boolean[] linked = new boolean[count];
+        int linkedCount = 0;
+        for (int i = 0; i < count; i++) {
+            int flag = flags.get(i);
+            if ((flag & TYPE_MASK) == TYPE_MASK || (flag & ~(TYPE_MASK | FLAG_EXECUTABLE | FLAG_UNPACKED)) != 0)
+                throw new AsarException("invalid index: flags");
+            int parent = parents.get(i);
+            if (i == 0 ? parent != -1 || (flag & TYPE_MASK) != TYPE_DIRECTORY : parent < 0 || parent >= i)
+                throw new AsarException("invalid index: parent");
+            if (nameIds.get(i) < 0 || nameIds.get(i) >= nameCount)
+                throw new AsarException("invalid index: name id");
+            long offset = offsets.get(i);
+            int size = sizes.get(i);
+            switch (flag & TYPE_MASK) {
+                case TYPE_FILE:
+                    if (offset < 0 || size < 0)
+                        throw new AsarException("invalid index: file");
+                    break;
+                case TYPE_DIRECTORY:
+                    if (offset < 0 || size < 0 || offset + size > childrenCount)
+                        throw new AsarException("invalid index: children");
+                    for (int k = (int) offset; k < offset + size; k++) {
+                        int child = children.get(k);
+                        if (child <= 0 || child >= count || parents.get(child) != i || linked[child])
+                            throw new AsarException("invalid index: children");
+                        linked[child] = true;
+                        linkedCount++;
+                    }
+                    break;
+                case TYPE_LINK:
+                    if (size < 0 || size >= nameCount)
+                        throw new AsarException("invalid index: link");
+                    break;
+            }
+            int integrity = integrities.get(i);
+            if (integrity != -1) {
+                if (integrity < 0 || integrity > integrityBytesLength - 16
+                        || integrityBytes.getInt(integrity) < 0 || integrityBytes.getInt(integrity) >= nameCount
+                        || integrityBytes.getInt(integrity + 12) < 0
+                        || integrityBytes.getInt(integrity + 12) > integrityBytesLength - integrity - 16)
+                    throw new AsarException("invalid index: integrity");
+            }
+        }
+        if (linkedCount != count - 1)
+            throw new AsarException("invalid index: children");
+    }
+
+    private static ByteBuffer section(ByteBuffer buffer, int size) {
+        ByteBuffer section = buffer.duplicate();
+        section.limit(section.position() + size);
+        buffer.position(buffer.position() + size);
+        return section.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static final int HEADER_SIZE = 20;
+
+    private static long byteSize(int count, int childrenCount, int nameCount, int nameBytesLength,
+                                 int integrityBytesLength) {
+        return HEADER_SIZE + count * (8L + 4 * 5) + childrenCount * 4L + (nameCount + 1) * 4L
+                + nameBytesLength + integrityBytesLength;
+    }
+
+    // the table on the buffer. the buffer should be in the binary format.
+    static AsarEntryTable map(ByteBuffer buffer) throws AsarException {
+        return new AsarEntryTable(buffer);
+    }
+
+    // returns the binary format of this table.
+    ByteBuffer toBinary() {
+        byte[][] encoded = new byte[names.length][];
+        int nameBytesLength = 0;
+        for (int i = 0; i < names.length; i++) {
+            encoded[i] = name(i).getBytes(StandardCharsets.UTF_8);
+            nameBytesLength += encoded[i].length;
+        }
+        long size = byteSize(count, children.limit(), names.length, nameBytesLength, integrityBytes.limit());
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalStateException("too large table");
+        ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(count);
+        buffer.putInt(children.limit());
+        buffer.putInt(names.length);
+        buffer.putInt(nameBytesLength);
+        buffer.putInt(integrityBytes.limit());
+        for (int i = 0; i < count; i++) buffer.putLong(offsets.get(i));
+        for (IntBuffer array : new IntBuffer[]{flags, sizes, parents, nameIds, integrities, children}) {
+            for (int i = 0; i < array.limit(); i++) buffer.putInt(array.get(i));
+        }
+        int nameOffset = 0;
+        for (byte[] name : encoded) {
+            buffer.putInt(nameOffset);
+            nameOffset += name.length;
+        }
+        buffer.putInt(nameOffset);
+        for (byte[] name : encoded) buffer.put(name);
+        buffer.put(integrityBytes.duplicate());
+        buffer.flip();
+        return buffer;
+    }
+
+    int size() {
+        return count;
+    }
+
+    // the estimated size of java heap retained by this table. mapped sections are not on the heap.
+    long heapSize() {
+        long size = names.length * 4L;
+        for (String name : names) {
+            if (name != null) size += 40 + name.length();
+        }
+        if (!offsets.isDirect()) {
+            size += count * 8L + count * 4L * 5 + children.capacity() * 4L + integrityBytes.capacity();
+        }
+        return size;
+    }
+
+    AsarEntryType type(int index) {
+        switch (flags.get(index) & TYPE_MASK) {
+            case TYPE_FILE:
+                return AsarEntryType.FILE;
+            case TYPE_DIRECTORY:
+                return AsarEntryType.DIRECTORY;
+            case TYPE_LINK:
+                return AsarEntryType.LINK;
+            default:
+                throw new IllegalStateException("invalid index: unknown type");
+        }
+    }
+
+    boolean isExecutable(int index) {
+        return (flags.get(index) & FLAG_EXECUTABLE) != 0;
+    }
+
+    boolean isUnpacked(int index) {
+        return (flags.get(index) & FLAG_UNPACKED) != 0;
+    }
+
+    long offset(int index) {
+        return offsets.get(index);
+    }
+
+    int bodySize(int index) {
+        return sizes.get(index);
+    }
+
+    int parent(int index) {
+        return parents.get(index);
+    }
+
+    String basename(int index) {
+        return name(nameIds.get(index));
+    }
+
+    String linkTarget(int index) {
+        return name(sizes.get(index));
+    }
+
+    private String name(int id) {
+        String name = names[id];
+        if (name == null) {
+            ByteBuffer bytes = nameBytes.duplicate();
+            bytes.position(nameOffsets.get(id));
+            bytes.limit(nameOffsets.get(id + 1));
+            names[id] = name = StandardCharsets.UTF_8.decode(bytes).toString().intern();
+        }
+        return name;
+    }
+
+    AsarIntegrity integrity(int index) {
+        int offset = integrities.get(index);
+        if (offset == -1) return null;
+        byte[] hashes = new byte[integrityBytes.getInt(offset + 12)];
+        ByteBuffer bytes = integrityBytes.duplicate();
+        bytes.position(offset + 16);
+        bytes.get(hashes);
+        return new AsarIntegrity(name(integrityBytes.getInt(offset)), integrityBytes.getInt(offset + 4),
+                integrityBytes.getInt(offset + 8), hashes);
+    }
+
+    int childCount(int index) {
+        return sizes.get(index);
+    }
+
+    int child(int index, int i) {
+        return children.get((int) offsets.get(index) + i);
+    }
+
+    // returns the index of child with the name or -1 if not found.
+    int findChild(int index, CharSequence name) {
+        int low = (int) offsets.get(index);
+        int high = low + sizes.get(index) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compare = NameRegion.compare(basename(children.get(mid)), name);
+            if (compare < 0) low = mid + 1;
+            else if (compare > 0) high = mid - 1;
+            else return children.get(mid);
+        }
+        return -1;
+    }
+
+    // the full name of the entry.
+    String path(int index) {
+        if (index == 0) return "";
+        int depth = 0;
+        for (int i = index; i != 0; i = parent(i)) depth++;
+        String[] components = new String[depth];
+        for (int i = index; i != 0; i = parent(i)) components[--depth] = basename(i);
+        StringBuilder builder = new StringBuilder();
+        for (String component : components)
+            builder.append('/').append(component);
+        return builder.toString();
+    }
+
+    static AsarEntryTable read(JsonReader reader) throws IOException {
+        Builder builder = new Builder();
+        builder.readEntry(reader, -1, "");
+        if (builder.duplicated) builder.removeUnreachable();
+        return new AsarEntryTable(builder);
+    }
+
+    private static class Builder {
+        int count;
+        int[] flags = new int[16];
+        long[] offsets = new long[16];
+        int[] sizes = new int[16];
+        int[] parents = new int[16];
+        int[] nameIds = new int[16];
+        int[] integrities = new int[16];
+        int integrityLength;
+        byte[] integrityBytes = new byte[64];
+        int childrenCount;
+        int[] children = new int[16];
+        // children of directories being read
+        int stackSize;
+        int[] stack = new int[16];
+        int[] sortBuffer = new int[16];
+        // true if some entries are replaced by later entries with the same name
+        boolean duplicated;
+        final List<String> names = new ArrayList<>();
+        final Map<String, Integer> nameIdMap = new HashMap<>();
+
+        private int nameId(String name) {
+            Integer id = nameIdMap.get(name);
+            if (id == null) {
+                nameIdMap.put(name, id = names.size());
+                // share with other asar files
+                names.add(name.intern());
+            }
+            return id;
+        }
+
+        private int add(int parent, String name) {
+            if (count == flags.length) {
+                int newLength = count * 2;
+                flags = Arrays.copyOf(flags, newLength);
+                offsets = Arrays.copyOf(offsets, newLength);
+                sizes = Arrays.copyOf(sizes, newLength);
+                parents = Arrays.copyOf(parents, newLength);
+                nameIds = Arrays.copyOf(nameIds, newLength);
+                integrities = Arrays.copyOf(integrities, newLength);
+            }
+            parents[count] = parent;
+            nameIds[count] = nameId(name);
+            integrities[count] = -1;
+            return count++;
+        }
+
+        // appends the integrity and returns the offset
+        private int addIntegrity(AsarIntegrity integrity) {
+            byte[] hashes = integrity.hashes();
+            int offset = integrityLength;
+            int length = offset + 16 + hashes.length;
+            if (integrityBytes.length < length)
+                integrityBytes = Arrays.copyOf(integrityBytes, Math.max(length, integrityBytes.length * 2));
+            ByteBuffer.wrap(integrityBytes, offset, 16).order(ByteOrder.LITTLE_ENDIAN)
+                    .putInt(nameId(integrity.getAlgorithm()))
+                    .putInt(integrity.getBlockSize())
+                    .putInt(integrity.hashLength())
+                    .putInt(hashes.length);
+            System.arraycopy(hashes, 0, integrityBytes, offset + 16, hashes.length);
+            integrityLength = length;
+            return offset;
+        }
+
+        // returns the index
+        int readEntry(JsonReader reader, int parent, String name) throws IOException {
+            int index = add(parent, name);
+            AsarIntegrity integrity = null;
+            String link = null;
+            // 0x0001: is executable
+            // 0x0002: is offset set
+            // 0x0004: is size set
+            // 0x0008: is directory
+            // 0x0010: is unpacked
+            int flags = 0;
+            long offset = 0;
+            int size = 0;
+            int firstChild = 0;
+            int childCount = 0;
+
+            reader.read('{');
+            while (reader.cur() != '}') {
+                switch (reader.readKey(AsarFile.ENTRY_KEYS)) {
+                    case AsarFile.KEY_FILES:
+                        firstChild = readFiles(reader, index);
+                        childCount = childrenCount - firstChild;
+                        flags |= 0x0008;
+                        break;
+                    case AsarFile.KEY_LINK:
+                        link = reader.readString();
+                        break;
+                    case AsarFile.KEY_EXECUTABLE:
+                        flags &= ~0x0001;
+                        flags |= reader.readBoolean() ? 1 : 0;
+                        break;
+                    case AsarFile.KEY_OFFSET:
+                        try {
+                            offset = reader.readLongString();
+                        } catch (NumberFormatException e) {
+                            throw new IOException("invalid offset", e);
+                        }
+                        flags |= 0x0002;
+                        break;
+                    case AsarFile.KEY_SIZE: {
+                        double number = reader.readNumber();
+                        // use ! for erase NaN
+                        if (!(0 <= number && number <= Integer.MAX_VALUE))
+                            throw new IOException("invalid size: out of range" + number);
+                        size = (int) number;
+                        flags |= 0x0004;
+                        break;
+                    }
+                    case AsarFile.KEY_INTEGRITY:
+                        integrity = AsarFile.readIntegrity(reader);
+                        break;
+                    case AsarFile.KEY_UNPACKED:
+                        flags &= ~0x0010;
+                        flags |= reader.readBoolean() ? 0x0010 : 0;
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+                reader.readOpt(',');
+            }
+            reader.read('}');
+            if ((flags & 0x0008) != 0) {
+                this.flags[index] = TYPE_DIRECTORY;
+                offsets[index] = firstChild;
+                sizes[index] = childCount;
+            } else if (link != null) {
+                this.flags[index] = TYPE_LINK;
+                sizes[index] = nameId(link);
+            } else if ((flags & 0x0004) != 0 && (flags & 0x0012) != 0) {
+                // unpacked files don't have offset
+                this.flags[index] = TYPE_FILE | ((flags & 0x0001) != 0 ? FLAG_EXECUTABLE : 0);
+                offsets[index] = offset;
+                sizes[index] = size;
+                if (integrity != null)
+                    integrities[index] = addIntegrity(integrity);
+            } else {
+                throw new IOException("invalid header: unknown entry");
+            }
+            if ((flags & 0x0010) != 0)
+                this.flags[index] |= FLAG_UNPACKED;
+            return index;
+        }
+
+        // reads children and appends them to children. returns the index of the first child in children.
+        private int readFiles(JsonReader reader, int parent) throws IOException {
+            int stackMark = stackSize;
+            reader.read('{');
+            while (reader.cur() != '}') {
+                String childName = reader.readKey();
+                if (childName.contains("/") || childName.contains("\\"))
+                    throw new AsarException("entry name must not have / or \\.");
+                if (childName.isEmpty() || childName.equals(".") || childName.equals(".."))
+                    throw new AsarException("invalid entry name: '" + childName + "'");
+                int child = readEntry(reader, parent, childName);
+                if (stackSize == stack.length)
+                    stack = Arrays.copyOf(stack, stackSize * 2);
+                stack[stackSize++] = child;
+                reader.readOpt(',');
+            }
+            reader.read('}');
+
+            int length = stackSize - stackMark;
+            if (sortBuffer.length < length)
+                sortBuffer = new int[Math.max(length, sortBuffer.length * 2)];
+            sort(stack, stackMark, stackSize);
+            if (children.length < childrenCount + length)
+                children = Arrays.copyOf(children, Math.max(childrenCount + length, children.length * 2));
+            int first = childrenCount;
+            for (int i = stackMark; i < stackSize; i++) {
+                // for duplicated names, the last one is used like HashMap
+                if (childrenCount != first && nameIds[children[childrenCount - 1]] == nameIds[stack[i]]) {
+                    childrenCount--;
+                    duplicated = true;
+                }
+                children[childrenCount++] = stack[i];
+            }
+            stackSize = stackMark;
+            return first;
+        }
+
+        // removes the entries replaced by later entries with the same name, and their descendants,
+        // to be the same as eager mode. the integrities of removed entries are left in integrityBytes.
+        void removeUnreachable() {
+            boolean[] reachable = new boolean[count];
+            int[] newIndices = new int[count];
+            int[] newChildren = new int[childrenCount];
+            int newCount = 0;
+            int newChildrenCount = 0;
+            reachable[0] = true;
+            // the index of the parent is less than children so entries are visited after the parent.
+            // the new index is never greater than the old index so arrays can be updated in place.
+            for (int i = 0; i < count; i++) {
+                if (!reachable[i]) continue;
+                int index = newCount++;
+                newIndices[i] = index;
+                flags[index] = flags[i];
+                offsets[index] = offsets[i];
+                sizes[index] = sizes[i];
+                parents[index] = i == 0 ? -1 : newIndices[parents[i]];
+                nameIds[index] = nameIds[i];
+                integrities[index] = integrities[i];
+                if ((flags[i] & TYPE_MASK) == TYPE_DIRECTORY) {
+                    int first = (int) offsets[i];
+                    for (int k = first; k < first + sizes[i]; k++)
+                        reachable[children[k]] = true;
+                    // children are remapped after all new indices are known
+                    System.arraycopy(children, first, newChildren, newChildrenCount, sizes[i]);
+                    offsets[index] = newChildrenCount;
+                    newChildrenCount += sizes[i];
+                }
+            }
+            for (int k = 0; k < newChildrenCount; k++)
+                newChildren[k] = newIndices[newChildren[k]];
+            count = newCount;
+            children = newChildren;
+            childrenCount = newChildrenCount;
+        }
+
+        // stable merge sort by name
+        private void sort(int[] array, int from, int to) {
+            if (to - from < 2) return;
+            int mid = (from + to) >>> 1;
+            sort(array, from, mid);
+            sort(array, mid, to);
+            if (compare(array[mid - 1], array[mid]) <= 0) return;
+            System.arraycopy(array, from, sortBuffer, 0, mid - from);
+            int i = 0, j = mid, k = from;
+            int iEnd = mid - from;
+            while (i < iEnd && j < to)
+                array[k++] = compare(sortBuffer[i], array[j]) <= 0 ? sortBuffer[i++] : array[j++];
+            while (i < iEnd)
+                array[k++] = sortBuffer[i++];
+        }
+
+        private int compare(int a, int b) {
+            return nameOf(a).compareTo(nameOf(b));
+        }
+
+        private String nameOf(int index) {
+            return names.get(nameIds[index]);
+        }
+    }
+}
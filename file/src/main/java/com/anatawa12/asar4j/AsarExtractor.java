@@ -0,0 +1,206 @@
+package com.anatawa12.asar4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// the implementation of AsarFile.extractTo.
+// directories and links are created on the calling thread, and then contents of files are copied in parallel.
+final class AsarExtractor {
+    private final AsarFile file;
+    private final Path target;
+    // the real path of target to check the directories are not out of target via symlinks
+    private Path realTarget;
+    private final ExtractOptions options;
+    // created directories
+    private final Set<Path> directories = new HashSet<>();
+    private volatile boolean failed;
+
+    AsarExtractor(AsarFile file, Path target, ExtractOptions options) {
+        this.file = file;
+        this.target = target.toAbsolutePath().normalize();
+        this.options = options;
+    }
+
+    void extract() throws IOException {
+        Files.createDirectories(target);
+        realTarget = target.toRealPath();
+        directories.add(target);
+        List<AsarEntry> files = new ArrayList<>();
+        for (AsarEntry entry : file.iterable()) {
+            if (entry.getName().isEmpty()) continue; // root
+            if (!options.filter.test(entry)) continue;
+            Path path = resolve(entry);
+            switch (entry.getType()) {
+                case DIRECTORY:
+                    createDirectories(path);
+                    break;
+                case LINK:
+                    createDirectories(path.getParent());
+                    Path link = linkTarget(entry, path);
+                    if (options.replaceExisting) Files.deleteIfExists(path);
+                    Files.createSymbolicLink(path, link);
+                    break;
+                case FILE:
+                    createDirectories(path.getParent());
+                    files.add(entry);
+                    break;
+                default:
+                    throw new AssertionError();
+            }
+        }
+        copyAll(files);
+    }
+
+    private void copyAll(List<AsarEntry> files) throws IOException {
+        Executor executor = options.executor;
+        ExecutorService pool = null;
+        if (executor == null) {
+            int threads = Math.min(options.parallelism, files.size());
+            if (threads <= 1) {
+                for (AsarEntry entry : files) copy(entry);
+                return;
+            }
+            pool = Executors.newFixedThreadPool(threads, new ExtractThreadFactory());
+            executor = pool;
+        }
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[files.size()];
+            for (int i = 0; i < futures.length; i++) {
+                AsarEntry entry = files.get(i);
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    if (failed) return;
+                    try {
+                        copy(entry);
+                    } catch (IOException e) {
+                        failed = true;
+                        throw new UncheckedIOException(e);
+                    } catch (RuntimeException | Error e) {
+                        failed = true;
+                        throw e;
+                    }
+                }, executor);
+            }
+            await(futures);
+        } finally {
+            if (pool != null) pool.shutdown();
+        }
+    }
+
+    private static void await(CompletableFuture<?>[] futures) throws IOException {
+        Throwable failure = null;
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+                if (failure == null) failure = cause;
+                else failure.addSuppressed(cause);
+            }
+        }
+        if (failure instanceof IOException) throw (IOException) failure;
+        if (failure instanceof RuntimeException) throw (RuntimeException) failure;
+        if (failure instanceof Error) throw (Error) failure;
+        if (failure != null) throw new AssertionError(failure);
+    }
+
+    private void copy(AsarEntry entry) throws IOException {
+        Path path = resolve(entry);
+        // the parent may be replaced with a symlink after the directories are created
+        checkRealPath(path.getParent(), entry);
+        StandardOpenOption create = options.replaceExisting
+                ? StandardOpenOption.CREATE : StandardOpenOption.CREATE_NEW;
+        // existing symlink is replaced instead of writing to the file it links to
+        if (options.replaceExisting && Files.isSymbolicLink(path)) Files.delete(path);
+        try (FileChannel out = FileChannel.open(path, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING, create, LinkOption.NOFOLLOW_LINKS)) {
+            file.transferTo(entry, out);
+        }
+        if (entry.isExecutable()) setExecutable(path);
+    }
+
+    private static void setExecutable(Path path) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(path, PosixFileAttributeView.class);
+        if (view == null) {
+            path.toFile().setExecutable(true);
+            return;
+        }
+        // adds execute permission to whom can read like chmod +x
+        Set<PosixFilePermission> permissions = new HashSet<>(view.readAttributes().permissions());
+        if (permissions.contains(PosixFilePermission.OWNER_READ))
+            permissions.add(PosixFilePermission.OWNER_EXECUTE);
+        if (permissions.contains(PosixFilePermission.GROUP_READ))
+            permissions.add(PosixFilePermission.GROUP_EXECUTE);
+        if (permissions.contains(PosixFilePermission.OTHERS_READ))
+            permissions.add(PosixFilePermission.OTHERS_EXECUTE);
+        view.setPermissions(permissions);
+    }
+
+    private void createDirectories(Path path) throws IOException {
+        if (directories.contains(path)) return;
+        // the existing directories may be symlinks to out of the target like "A" -> "/etc" on
+        // case-insensitive file systems or symlinks already in the target.
+        Path existing = path;
+        while (!Files.exists(existing, LinkOption.NOFOLLOW_LINKS))
+            existing = existing.getParent();
+        if (!existing.toRealPath().startsWith(realTarget))
+            throw new AsarException("the directory is out of the target directory: " + path);
+        Files.createDirectories(path);
+        checkRealPath(path, null);
+        directories.add(path);
+    }
+
+    private void checkRealPath(Path directory, AsarEntry entry) throws IOException {
+        if (!directory.toRealPath().startsWith(realTarget))
+            throw new AsarException("the entry is out of the target directory: "
+                    + (entry == null ? directory.toString() : entry.getName()));
+    }
+
+    // the target of the link which must be in the target directory like electron/asar
+    private Path linkTarget(AsarEntry entry, Path path) throws AsarException {
+        Path link = path.getFileSystem().getPath(entry.getLinkTarget());
+        if (link.isAbsolute() || link.getRoot() != null
+                || !path.getParent().resolve(link).normalize().startsWith(target))
+            throw new AsarException("the link is out of the target directory: " + entry.getName()
+                    + " -> " + entry.getLinkTarget());
+        return link;
+    }
+
+    private Path resolve(AsarEntry entry) throws AsarException {
+        Path path = target.resolve(entry.getName().substring(1)).normalize();
+        // names are checked when reading the header but check again for safety
+        if (!path.startsWith(target) || path.equals(target))
+            throw new AsarException("the entry is out of the target directory: " + entry.getName());
+        return path;
+    }
+
+    private static class ExtractThreadFactory implements ThreadFactory {
+        private static final AtomicInteger poolCount = new AtomicInteger();
+        private final int pool = poolCount.incrementAndGet();
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "asar4j-extract-" + pool + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -1,57 +1,322 @@
 package com.anatawa12.asar4j;
 
+import com.anatawa12.asar4j.internal.AsarEvents;
+
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.nio.channels.Channels;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Queue;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
 public class AsarFile implements Closeable {
+    /**
+     * Mode flag to read the header lazily.
+     * The children of directories will be read from the header when the directory is first accessed,
+     * and {@link #size()} will be computed at the first call.
+     */
+    public static final int OPEN_LAZY = 0x1;
+
+    /**
+     * Mode flag to keep the header in the compact table of primitive arrays.
+     * Entries will be created when returned from this class so the same entry
+     * may not be the same instance.
+     * This cannot be used with {@link #OPEN_LAZY}.
+     */
+    public static final int OPEN_COMPACT = 0x2;
+
+    /**
+     * Mode flag to verify the contents of files with the integrity in the header.
+     * Each block of files is verified when first read through {@link #getChannel(AsarEntry)}
+     * or {@link #getInputStream(AsarEntry)}, and {@link AsarException} is thrown if the block is modified.
+     * Files without integrity are not verified.
+     * This can be used with other mode flags.
+     *
+     * @see #verify()
+     */
+    public static final int OPEN_VERIFY = 0x4;
+
+    /**
+     * The default maximum gap between entries merged by {@link #readBatch(Collection)}.
+     */
+    public static final int DEFAULT_BATCH_GAP = 16 * 1024;
+    // the number of entries prefetched with a readBatch
+    private static final int PREFETCH_BATCH = 64;
+    // the maximum size of a merged read of readBatch
+    private static final int MAX_BATCH_READ = 4 * 1024 * 1024;
+
+    private final int mode;
     private SeekableByteChannel file;
-    private AsarDirectoryEntry rootEntry;
+    // non-null if opened in mapped mode.
+    private ByteBuffer buffer;
+    // the lock for channels which is not FileChannel. FileChannel is read with positional read.
+    private final Lock lock = new ReentrantLock();
+    private final AsarStatistics statistics = new AsarStatistics(this);
+    private AsarEntry rootEntry;
+    // non-null if opened in compact mode.
+    private AsarEntryTable table;
     private long initialOffset;
-    private int count;
+    // the size of header json
+    private int headerLength;
+    // the path of the asar file. null if not opened with path.
+    private Path archive;
+    // the .asar.unpacked directory. null if the asar file is not opened with path.
+    private Path unpackedDirectory;
+    // -1 if not computed
+    private volatile int count = -1;
+    // all entries for stream. null if not computed or in compact or lazy mode.
+    private volatile AsarEntry[] entryArray;
+    private volatile ContentCache contentCache;
+    // the path of the asar file for asynchronous reads. null if not opened with path or in mapped mode.
+    private Path path;
+    // opened at first asynchronous read
+    private volatile AsynchronousFileChannel asyncFile;
+    // non-null while recording access
+    private volatile AccessProfile recording;
+    // built at the first query by name
+    private volatile NameIndex nameIndex;
+    // computed at the first call of filesByOffset
+    private volatile OffsetOrder offsetOrder;
 
     public AsarFile(SeekableByteChannel file) throws IOException {
+        this(file, 0);
+    }
+
+    /**
+     * Opens the asar file with the specified mode.
+     *
+     * @param file the channel of the asar file.
+     * @param mode the mode flags. zero, {@link #OPEN_LAZY} or {@link #OPEN_COMPACT}, optionally with {@link #OPEN_VERIFY}.
+     * @throws IOException if the header is invalid.
+     */
+    public AsarFile(SeekableByteChannel file, int mode) throws IOException {
+        this(file, mode, null);
+    }
+
+    private AsarFile(SeekableByteChannel file, int mode, Path archive) throws IOException {
+        this.mode = checkMode(mode);
         this.file = Objects.requireNonNull(file);
+        this.archive = archive;
+        readHeader();
+    }
+
+    /**
+     * Opens the asar file on the memory in mapped mode.
+     * The bytes between position and limit of {@code buffer} is the asar file.
+     * Changes to the content of {@code buffer} will be visible to this asar file.
+     *
+     * @param buffer the buffer contains whole asar file.
+     * @throws IOException if the header is invalid.
+     * @see #getByteBuffer(AsarEntry)
+     */
+    public AsarFile(ByteBuffer buffer) throws IOException {
+        this(buffer, 0);
+    }
+
+    /**
+     * Opens the asar file on the memory in mapped mode with the specified mode.
+     *
+     * @param buffer the buffer contains whole asar file.
+     * @param mode   the mode flags. zero, {@link #OPEN_LAZY} or {@link #OPEN_COMPACT}, optionally with {@link #OPEN_VERIFY}.
+     * @throws IOException if the header is invalid.
+     * @see #AsarFile(ByteBuffer)
+     */
+    public AsarFile(ByteBuffer buffer, int mode) throws IOException {
+        this(buffer, mode, null);
+    }
+
+    private AsarFile(ByteBuffer buffer, int mode, Path archive) throws IOException {
+        this.mode = checkMode(mode);
+        this.buffer = buffer.slice();
+        this.file = new ByteBufferChannel(this.buffer.duplicate());
+        this.archive = archive;
         readHeader();
     }
 
     public AsarFile(Path path) throws IOException {
-        this(Files.newByteChannel(path, StandardOpenOption.READ));
+        this(path, 0);
+    }
+
+    public AsarFile(Path path, int mode) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), mode, path);
+        this.path = path;
+        unpackedDirectory = unpackedDirectory(path);
     }
 
     public AsarFile(File file) throws IOException {
         this(file.toPath());
     }
 
+    public AsarFile(File file, int mode) throws IOException {
+        this(file.toPath(), mode);
+    }
+
     public AsarFile(String name) throws IOException {
         this(Paths.get(name));
     }
 
+    /**
+     * Opens the asar file with memory mapping in mapped mode.
+     * The whole of file will be mapped to the memory.
+     *
+     * @param path the path to asar file.
+     * @return the asar file in mapped mode.
+     * @throws IOException if the file is too large to map or the header is invalid.
+     * @see #getByteBuffer(AsarEntry)
+     */
+    public static AsarFile openMapped(Path path) throws IOException {
+        return openMapped(path, 0);
+    }
+
+    /**
+     * Opens the asar file with memory mapping in mapped mode with the specified mode.
+     *
+     * @param path the path to asar file.
+     * @param mode the mode flags. zero, {@link #OPEN_LAZY} or {@link #OPEN_COMPACT}, optionally with {@link #OPEN_VERIFY}.
+     * @return the asar file in mapped mode.
+     * @throws IOException if the file is too large to map or the header is invalid.
+     * @see #openMapped(Path)
+     */
+    public static AsarFile openMapped(Path path, int mode) throws IOException {
+        ByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new AsarException("asar file too large to map: " + channel.size() + " bytes");
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        AsarFile file = new AsarFile(mapped, mode, path);
+        file.unpackedDirectory = unpackedDirectory(path);
+        return file;
+    }
+
+    /**
+     * Opens the asar file with the index file of the header.
+     * The index file is the binary form of the header which can be memory-mapped and
+     * used without parsing the header.
+     * The index file will be regenerated if it's missing, broken or created for other asar file.
+     * The asar file will be opened in compact mode.
+     *
+     * @param path      the path to asar file.
+     * @param indexPath the path to index file.
+     * @return the asar file.
+     * @throws IOException if the header is invalid.
+     * @see #OPEN_COMPACT
+     */
+    public static AsarFile openIndexed(Path path, Path indexPath) throws IOException {
+        long start = System.nanoTime();
+        Object event = AsarEvents.beginOpen();
+        AsarFile file = AsarIndexFile.open(path, indexPath);
+        file.statistics.headerParsed(System.nanoTime() - start);
+        if (event != null) AsarEvents.endOpen(event, path, file.mode, file.count);
+        file.path = path;
+        file.unpackedDirectory = unpackedDirectory(path);
+        return file;
+    }
+
+    // electron reads unpacked files from app.asar.unpacked for app.asar
+    private static Path unpackedDirectory(Path path) {
+        Path absolute = path.toAbsolutePath();
+        return absolute.resolveSibling(absolute.getFileName() + ".unpacked");
+    }
+
+    private static int checkMode(int mode) {
+        if ((mode & (OPEN_LAZY | OPEN_COMPACT)) == (OPEN_LAZY | OPEN_COMPACT))
+            throw new IllegalArgumentException("OPEN_LAZY and OPEN_COMPACT cannot be used together");
+        return mode;
+    }
+
+    // for index file
+    AsarFile(SeekableByteChannel file, AsarEntryTable table, long initialOffset, Path archive) {
+        this.mode = OPEN_COMPACT;
+        this.file = file;
+        this.archive = archive;
+        this.table = table;
+        this.rootEntry = new AsarTableEntry(table, 0, this);
+        this.initialOffset = initialOffset;
+        this.count = table.size();
+    }
+
     private void readHeader() throws IOException {
+        long start = System.nanoTime();
+        Object event = AsarEvents.beginOpen();
+        Header header = readHeader(file, lock);
+        byte[] json = header.json;
+        headerLength = json.length;
+        AsarEntry entry;
+        if ((mode & OPEN_LAZY) != 0) {
+            // the header will be retained until all directories are read.
+            entry = readEntry(new JsonReader(json), null, "", this, json, new NamePool());
+        } else if ((mode & OPEN_COMPACT) != 0) {
+            table = AsarEntryTable.read(new JsonReader(json));
+            entry = new AsarTableEntry(table, 0, this);
+        } else {
+            entry = readEntry(new JsonReader(json), "", this);
+        }
+        if (entry == null || entry.getType() != AsarEntryType.DIRECTORY)
+            throw new AsarException("invalid header: header is not directory");
+        rootEntry = entry;
+        initialOffset = header.initialOffset;
+
+        if (table != null)
+            count = table.size();
+        else if ((mode & OPEN_LAZY) == 0)
+            count = countEntries();
+        statistics.headerParsed(System.nanoTime() - start);
+        if (event != null) AsarEvents.endOpen(event, archive, mode, count);
+    }
+
+    // the name of the asar file for diagnostics. null if not opened with path.
+    Path archive() {
+        return archive;
+    }
+
+    static final class Header {
+        // the offset of body
+        final long initialOffset;
+        final byte[] json;
+
+        Header(long initialOffset, byte[] json) {
+            this.initialOffset = initialOffset;
+            this.json = json;
+        }
+    }
+
+    static Header readHeader(SeekableByteChannel file, Lock lock) throws IOException {
         /*
          * header format
          *
@@ -70,70 +335,102 @@ public class AsarFile implements Closeable {
          * |  header json  |
          * +===============+
          */
+        SLROSByteChannel sizeChannel = new SLROSByteChannel(file, 0, 16, lock);
         ByteBuffer sizeFields = ByteBuffer.allocate(8);
         sizeFields.order(ByteOrder.LITTLE_ENDIAN);
-        if (file.read(sizeFields) != 8)
+        if (sizeChannel.read(sizeFields) != 8)
             throw new AsarException("invalid header: unable to read size field");
         sizeFields.rewind();
         if (sizeFields.getInt() != 4)
             throw new AsarException("invalid header: invalid size of size field");
         long headerSize = sizeFields.getInt() & 0xFFFF_FFFFL;
         sizeFields.flip();
-        if (file.read(sizeFields) != 8)
+        if (sizeChannel.read(sizeFields) != 8)
             throw new AsarException("invalid header: unable to read header");
         sizeFields.rewind();
         if ((sizeFields.getInt() & 0xFFFF_FFFFL) != headerSize - 4)
             throw new AsarException("invalid header: invalid size of json");
         long jsonSize = sizeFields.getInt() & 0xFFFF_FFFFL;
 
-        JsonReader reader = new JsonReader(Channels.newReader(
-                new SLROSByteChannel(file, 16, jsonSize, this),
-                StandardCharsets.UTF_8.newDecoder(),
-                -1));
-        AsarEntry entry = readEntry(reader, "", this);
-        if (!(entry instanceof AsarDirectoryEntry))
-            throw new AsarException("invalid header: header is not directory");
-        rootEntry = (AsarDirectoryEntry) entry;
-
+        if (jsonSize > Integer.MAX_VALUE)
+            throw new AsarException("invalid header: too large header");
+        SLROSByteChannel jsonChannel = new SLROSByteChannel(file, 16, jsonSize, lock);
+        ByteBuffer json = ByteBuffer.allocate((int) jsonSize);
+        while (json.hasRemaining()) {
+            if (jsonChannel.read(json) == -1)
+                throw new AsarException("invalid header: unable to read header");
+        }
         // + 8: size field
-        initialOffset = headerSize + 8;
+        return new Header(headerSize + 8, json.array());
+    }
 
+    private int countEntries() {
         // this is safe because size of files is in unsigned 32bit and each entry uses two or more bytes.
-        count = (int) StreamSupport.stream(iterable.spliterator(), false).count();
+        return (int) StreamSupport.stream(iterable.spliterator(), false).count();
     }
 
     static AsarEntry readEntry(JsonReader reader, String name, AsarFile owner) throws IOException {
-        Map<String, AsarEntry> files = null;
+        return readEntry(reader, null, name, owner, null, new NamePool());
+    }
+
+    static final byte[][] ENTRY_KEYS = JsonReader.keys(
+            "files", "link", "executable", "offset", "size", "unpacked", "integrity");
+    static final int KEY_FILES = 0;
+    static final int KEY_LINK = 1;
+    static final int KEY_EXECUTABLE = 2;
+    static final int KEY_OFFSET = 3;
+    static final int KEY_SIZE = 4;
+    static final int KEY_UNPACKED = 5;
+    static final int KEY_INTEGRITY = 6;
+
+    // if parent is null, name is the full name. if not, name is the basename.
+    // if header is not null, files of directories will be read lazily from the header.
+    static AsarEntry readEntry(JsonReader reader, AsarEntry parent, String name, AsarFile owner,
+                               byte[] header, NamePool pool) throws IOException {
+        AsarEntry directory = null;
         String link = null;
         // 0x0001: is executable
         // 0x0002: is offset set
         // 0x0004: is size set
+        // 0x0008: is unpacked
         int flags = 0;
         long offset = 0;
         int size = 0;
+        AsarIntegrity integrity = null;
 
         reader.read('{');
         while (reader.cur() != '}') {
-            switch (reader.readKey()) {
-                case "files":
-                    files = readFiles(reader, name, owner);
+            switch (reader.readKey(ENTRY_KEYS)) {
+                case KEY_FILES:
+                    if (header == null) {
+                        // children is added to files after created the directory to link children to the parent.
+                        Map<String, AsarEntry> files = new HashMap<>();
+                        directory = new AsarDirectoryEntry(parent, name, Collections.unmodifiableMap(files));
+                        directory.owner = owner;
+                        readFiles(reader, directory, files, owner, null, pool);
+                    } else {
+                        reader.cur();
+                        directory = new AsarLazyDirectoryEntry(parent, name, header, reader.position());
+                        directory.owner = owner;
+                        reader.skipValue();
+                    }
                     break;
-                case "link":
+                case KEY_LINK:
                     link = reader.readString();
                     break;
-                case "executable":
+                case KEY_EXECUTABLE:
                     flags &= ~0x0001;
                     flags |= reader.readBoolean() ? 1 : 0;
                     break;
-                case "offset":
+                case KEY_OFFSET:
                     try {
-                        offset = Long.parseLong(reader.readString());
+                        offset = reader.readLongString();
                     } catch (NumberFormatException e) {
                         throw new IOException("invalid offset", e);
                     }
                     flags |= 0x0002;
                     break;
-                case "size": {
+                case KEY_SIZE: {
                     double number = reader.readNumber();
                     // use ! for erase NaN
                     if (!(0 <= number && number <= Integer.MAX_VALUE))
@@ -142,12 +439,12 @@ public class AsarFile implements Closeable {
                     flags |= 0x0004;
                     break;
                 }
-                case "unpacked":
-                    if (reader.readBoolean()) {
-                        reader.skipObjectBodyRemain();
-                        reader.read('}');
-                        return null;
-                    }
+                case KEY_INTEGRITY:
+                    integrity = readIntegrity(reader);
+                    break;
+                case KEY_UNPACKED:
+                    flags &= ~0x0008;
+                    flags |= reader.readBoolean() ? 0x0008 : 0;
                     break;
                 default:
                     reader.skipValue();
@@ -157,38 +454,107 @@ public class AsarFile implements Closeable {
         }
         reader.read('}');
         AsarEntry entry;
-        if (files != null) {
-            entry = new AsarDirectoryEntry(name, Collections.unmodifiableMap(files));
+        if (directory != null) {
+            directory.unpacked = (flags & 0x0008) != 0;
+            return directory;
         } else if (link != null) {
-            entry = new AsarLinkEntry(name, link);
-        } else if ((flags & 0x0006) == 0x0006) {
-            entry = new AsarEntry(name);
+            entry = parent == null ? new AsarLinkEntry(name, link) : new AsarLinkEntry(parent, name, link);
+        } else if ((flags & 0x0004) != 0 && (flags & 0x000A) != 0) {
+            // unpacked files don't have offset
+            entry = parent == null ? new AsarEntry(name) : new AsarEntry(parent, name);
             entry.setExecutable((flags & 0x0001) != 0);
             entry.offset = offset;
+            entry.integrity = integrity;
             entry.setSize(size);
         } else {
             throw new IOException("invalid header: unknown entry");
         }
+        entry.unpacked = (flags & 0x0008) != 0;
         entry.owner = owner;
         return entry;
     }
 
-    private static Map<String, AsarEntry> readFiles(JsonReader reader, String base, AsarFile owner) throws IOException {
-        Map<String, AsarEntry> entries;
+    private static final byte[][] INTEGRITY_KEYS = JsonReader.keys("algorithm", "hash", "blockSize", "blocks");
+
+    static AsarIntegrity readIntegrity(JsonReader reader) throws IOException {
+        String algorithm = null;
+        byte[] hash = null;
+        int blockSize = 0;
+        ByteArrayOutputStream blocks = null;
+
+        reader.read('{');
+        while (reader.cur() != '}') {
+            switch (reader.readKey(INTEGRITY_KEYS)) {
+                case 0:
+                    algorithm = reader.readString().intern();
+                    break;
+                case 1:
+                    hash = hex(reader.readString());
+                    break;
+                case 2: {
+                    double number = reader.readNumber();
+                    // use ! for erase NaN
+                    if (!(0 < number && number <= Integer.MAX_VALUE))
+                        throw new AsarException("invalid integrity: block size out of range: " + number);
+                    blockSize = (int) number;
+                    break;
+                }
+                case 3:
+                    blocks = new ByteArrayOutputStream();
+                    reader.read('[');
+                    while (reader.cur() != ']') {
+                        byte[] block = hex(reader.readString());
+                        blocks.write(block, 0, block.length);
+                        reader.readOpt(',');
+                    }
+                    reader.read(']');
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+            reader.readOpt(',');
+        }
+        reader.read('}');
+        if (algorithm == null || hash == null || blockSize == 0 || blocks == null)
+            throw new AsarException("invalid integrity: algorithm, hash, blockSize and blocks are required");
+        if (hash.length == 0 || blocks.size() % hash.length != 0)
+            throw new AsarException("invalid integrity: length of hashes mismatch");
+        byte[] hashes = Arrays.copyOf(hash, hash.length + blocks.size());
+        System.arraycopy(blocks.toByteArray(), 0, hashes, hash.length, blocks.size());
+        return new AsarIntegrity(algorithm, blockSize, hash.length, hashes);
+    }
+
+    private static byte[] hex(String hex) throws AsarException {
+        if (hex.length() % 2 != 0)
+            throw new AsarException("invalid integrity: odd length of hex");
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int high = Character.digit(hex.charAt(i * 2), 16);
+            int low = Character.digit(hex.charAt(i * 2 + 1), 16);
+            if (high == -1 || low == -1)
+                throw new AsarException("invalid integrity: invalid hex: " + hex);
+            bytes[i] = (byte) (high << 4 | low);
+        }
+        return bytes;
+    }
+
+    static void readFiles(JsonReader reader, AsarEntry directory, Map<String, AsarEntry> entries,
+                          AsarFile owner, byte[] header, NamePool pool) throws IOException {
         reader.read('{');
-        // entries map
-        entries = new HashMap<>();
         while (reader.cur() != '}') {
             String childName = reader.readKey();
             if (childName.contains("/") || childName.contains("\\"))
                 throw new AsarException("entry name must not have / or \\.");
-            AsarEntry childEntry = readEntry(reader, base + "/" + childName, owner);
+            if (childName.isEmpty() || childName.equals(".") || childName.equals(".."))
+                throw new AsarException("invalid entry name: '" + childName + "'");
+            childName = pool.get(childName);
+            AsarEntry childEntry = readEntry(reader, directory, childName, owner, header, pool);
             if (childEntry != null)
                 entries.put(childName, childEntry);
             reader.readOpt(',');
         }
         reader.read('}');
-        return entries;
     }
 
     /**
@@ -201,6 +567,17 @@ public class AsarFile implements Closeable {
         return getEntry(name, true);
     }
 
+    /**
+     * Returns the asar file/directory entry for the specified name, or null if not found.
+     * The name will not be copied so this can be used with reused buffer like {@link StringBuilder}.
+     *
+     * @param name the name of entry
+     * @return the asar file/directory entry, or null if not found.
+     */
+    public AsarEntry getEntry(CharSequence name) {
+        return getEntry(name, true);
+    }
+
     /**
      * Returns the asar entry for the specified name, or null if not found
      *
@@ -209,69 +586,33 @@ public class AsarFile implements Closeable {
      * @return the asar entry, or null if not found.
      */
     public AsarEntry getEntry(String name, boolean resolveLastLink) {
+        return getEntry((CharSequence) name, resolveLastLink);
+    }
+
+    /**
+     * Returns the asar entry for the specified name, or null if not found
+     *
+     * @param name            the name of entry.
+     * @param resolveLastLink if the name targets a link, if true, resolves the link. if false, returns link entry.
+     * @return the asar entry, or null if not found.
+     */
+    public AsarEntry getEntry(CharSequence name, boolean resolveLastLink) {
         eraseClose();
-        List<String> components = AsarEntry.components(name);
-        for (String component : components) {
-            if (component.equals(".") || component.equals(".."))
-                throw new IllegalArgumentException("path have . or ..");
-        }
-        return resolveEntry(components, resolveLastLink, rootEntry);
+        Objects.requireNonNull(name, "name");
+        EntryResolver.checkNoDots(name);
+        Object event = AsarEvents.beginLookup();
+        AsarEntry entry = resolveEntry(name, resolveLastLink, rootEntry);
+        statistics.lookup(name, entry != null);
+        if (event != null) AsarEvents.endLookup(event, archive, name, entry != null);
+        return entry;
     }
 
     static AsarEntry resolveEntry(
-            List<String> components,
+            CharSequence name,
             boolean resolveLastLink,
             AsarEntry rootEntry
     ) {
-        // fast path
-        if (components.isEmpty()) return rootEntry;
-
-        LinkedList<AsarEntry> entries = new LinkedList<>();
-        entries.add(rootEntry);
-        ListIterator<String> iter = components.listIterator();
-        while (iter.hasNext()) {
-            String component = iter.next();
-            if (component.isEmpty()) continue; // '//' is ignored
-            AsarEntry cur = entries.peekLast();
-            if (cur == null) return null;
-            if (cur.getType() != AsarEntryType.DIRECTORY) return null;
-
-            switch (component) {
-                case "..":
-                    entries.removeLast();
-                    break;
-                case ".":
-                    break;
-                default:
-                    AsarEntry child = cur.getChild(component);
-                    if (child == null) return null;
-                    switch (child.getType()) {
-                        case DIRECTORY:
-                        case FILE:
-                            entries.add(child);
-                            break;
-                        case LINK:
-                            if (resolveLastLink || iter.hasNext()) {
-                                // run link
-                                int added = 0;
-                                for (String s1 : child.getLinkTarget().split("/")) {
-                                    iter.add(s1);
-                                    added++;
-                                }
-                                for (int i = 0; i < added; i++) {
-                                    iter.previous();
-                                }
-                            } else {
-                                return child;
-                            }
-                            break;
-                        default:
-                            throw new AssertionError();
-                    }
-                    break;
-            }
-        }
-        return entries.peekLast();
+        return EntryResolver.resolve(name, resolveLastLink, rootEntry);
     }
 
     /**
@@ -279,24 +620,787 @@ public class AsarFile implements Closeable {
      *
      * @param entry the asar file entry
      * @return the input stream for reading the contents of the specified asar file entry.
+     * @throws UncheckedIOException  if failed to open the unpacked file.
+     * @throws IllegalStateException if the entry is unpacked but this asar file is not opened with path.
+     * @see #getChannel(AsarEntry)
      */
     public InputStream getInputStream(AsarEntry entry) {
-        return Channels.newInputStream(getChannel(entry));
+        SeekableByteChannel channel = getChannel(entry);
+        try {
+            return new EntryInputStream(this, entry, channel);
+        } catch (IOException e) {
+            closeQuietly(channel, e);
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
      * Returns a channel for reading the contents of the specified asar file entry.
+     * For unpacked entries, the file in the {@code .asar.unpacked} directory next to the asar file
+     * will be opened. Unpacked entries can only be read if this asar file is opened with path.
      *
      * @param entry the asar file entry
      * @return the channel for reading the contents of the specified asar file entry.
+     * @throws UncheckedIOException  if failed to open the unpacked file.
+     * @throws IllegalStateException if the entry is unpacked but this asar file is not opened with path.
      */
     public SeekableByteChannel getChannel(AsarEntry entry) {
+        checkFileAccess(entry);
+        statistics.open(entry);
+        try {
+            return channel(entry);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private SeekableByteChannel channel(AsarEntry entry) throws IOException {
+        if (!isVerified(entry))
+            return rawChannel(entry);
+        SeekableByteChannel raw = rawChannel(entry);
+        try {
+            return new VerifyingByteChannel(raw, entry.getIntegrity(), entry.getName());
+        } catch (IOException e) {
+            closeQuietly(raw, e);
+            throw e;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable, Throwable cause) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private boolean isVerified(AsarEntry entry) {
+        return (mode & OPEN_VERIFY) != 0 && entry.getIntegrity() != null;
+    }
+
+    // the channel without verification
+    private SeekableByteChannel rawChannel(AsarEntry entry) throws IOException {
+        if (entry.isUnpacked())
+            return openUnpacked(entry);
+        if (buffer != null)
+            return new ByteBufferChannel(slice(entry));
+        return new SLROSByteChannel(
+                file, initialOffset + entry.offset, entry.getSize(), lock, this, entry);
+    }
+
+    /**
+     * Returns the statistics of the operations on this asar file.
+     * The returned object is updated while this asar file is used.
+     *
+     * @return the statistics of this asar file.
+     */
+    public AsarStatistics getStatistics() {
+        return statistics;
+    }
+
+    // estimated sizes of objects for AsarStatistics.getEstimatedHeapSize
+    private static final int ENTRY_HEAP_SIZE = 64;
+    private static final int MAP_ENTRY_HEAP_SIZE = 48;
+    private static final int STRING_HEAP_SIZE = 40;
+
+    long estimateHeapSize() {
+        if (table != null) return table.heapSize();
+        if ((mode & OPEN_LAZY) != 0) return headerLength;
+        long size = 0;
+        for (Entries entries = new Entries(rootEntry); entries.hasNext(); ) {
+            AsarEntry entry = entries.next();
+            size += ENTRY_HEAP_SIZE;
+            if (entry.getType() == AsarEntryType.DIRECTORY)
+                size += (long) entry.getChildren().size() * MAP_ENTRY_HEAP_SIZE;
+            if (entry != rootEntry)
+                size += STRING_HEAP_SIZE + entry.getBasename().length();
+        }
+        return size;
+    }
+
+    /**
+     * Sets the cache of contents used by {@link #getContents(AsarEntry)}.
+     * The cache can be shared with other asar files.
+     *
+     * @param contentCache the cache or null to disable caching.
+     */
+    public void setContentCache(ContentCache contentCache) {
+        this.contentCache = contentCache;
+    }
+
+    /**
+     * @return the cache of contents or null if not set.
+     */
+    public ContentCache getContentCache() {
+        return contentCache;
+    }
+
+    /**
+     * Returns a read-only buffer of the contents of the specified asar file entry.
+     * If a {@link ContentCache} is set, the contents are returned from and stored into the cache.
+     * The returned buffer is a duplicate so its position and limit can be changed freely.
+     *
+     * @param entry the asar file entry
+     * @return the read-only buffer of the contents of the specified asar file entry.
+     * @throws IOException if an I/O error has occurred
+     * @see #setContentCache(ContentCache)
+     */
+    public ByteBuffer getContents(AsarEntry entry) throws IOException {
+        checkFileAccess(entry);
+        ContentCache cache = contentCache;
+        if (cache == null || !cache.admits(entry))
+            return ByteBuffer.wrap(readAllBytes(entry)).asReadOnlyBuffer();
+        ByteBuffer cached = cache.get(this, entry);
+        if (cached != null) return cached;
+        return cache.put(this, entry, readAllBytes(entry));
+    }
+
+    /**
+     * Starts recording the access to contents of entries into the profile.
+     * The first access to each entry is recorded in order.
+     *
+     * @param profile the profile to record into or null to stop recording.
+     * @see AccessProfile#write(Path)
+     */
+    public void recordAccess(AccessProfile profile) {
+        this.recording = profile;
+    }
+
+    /**
+     * Prefetches the contents of the entries in the profile on a background daemon thread.
+     *
+     * @param profile the profile
+     * @return the future completed when prefetching is finished.
+     * @see #prefetch(AccessProfile, Executor)
+     */
+    public CompletableFuture<Void> prefetch(AccessProfile profile) {
+        return prefetch(profile, command -> {
+            Thread thread = new Thread(command, "asar4j-prefetch");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * Prefetches the contents of the entries in the profile on the executor in the order of the profile.
+     * The adjacent contents are read with large reads like {@link #readBatch(Collection)}.
+     * If a {@link ContentCache} is set, the contents are stored into the cache.
+     * Otherwise, the contents are just read to be loaded into the page cache of the OS,
+     * and in mapped mode, the pages of the contents are touched to be loaded.
+     * The entries not in this asar file are ignored.
+     *
+     * @param profile  the profile
+     * @param executor the executor to prefetch on
+     * @return the future completed when prefetching is finished.
+     */
+    public CompletableFuture<Void> prefetch(AccessProfile profile, Executor executor) {
+        eraseClose();
+        List<String> names = profile.getNames();
+        return CompletableFuture.runAsync(() -> {
+            try {
+                prefetch(names);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    private void prefetch(List<String> names) throws IOException {
+        List<AsarEntry> entries = new ArrayList<>();
+        for (String name : names) {
+            AsarEntry entry;
+            try {
+                entry = getEntry(name);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (entry == null || entry.getType() != AsarEntryType.FILE) continue;
+            entries.add(entry);
+            if (entries.size() == PREFETCH_BATCH) {
+                prefetchBatch(entries);
+                entries.clear();
+            }
+        }
+        if (!entries.isEmpty()) prefetchBatch(entries);
+    }
+
+    private void prefetchBatch(List<AsarEntry> entries) throws IOException {
+        ContentCache cache = contentCache;
+        if (cache == null && buffer != null) {
+            for (AsarEntry entry : entries) {
+                if (entry.isUnpacked()) continue;
+                ByteBuffer slice = slice(entry);
+                // touch each page
+                for (int i = 0; i < slice.limit(); i += 4096)
+                    slice.get(i);
+            }
+            return;
+        }
+        Map<AsarEntry, ByteBuffer> contents = readBatch0(entries, DEFAULT_BATCH_GAP);
+        if (cache == null) return;
+        for (Map.Entry<AsarEntry, ByteBuffer> entry : contents.entrySet()) {
+            if (!cache.admits(entry.getKey())) continue;
+            byte[] bytes = new byte[entry.getValue().remaining()];
+            entry.getValue().get(bytes);
+            cache.put(this, entry.getKey(), bytes);
+        }
+    }
+
+    /**
+     * Reads all contents of the specified asar file entry asynchronously.
+     * For the asar file opened with path, the contents are read with {@link AsynchronousFileChannel}
+     * so no thread is blocked while reading. For the asar file in mapped mode, the contents are
+     * read on the calling thread. Otherwise, the contents are read on {@link ForkJoinPool#commonPool()}.
+     * If a {@link ContentCache} is set, the cache is used like {@link #getContents(AsarEntry)}.
+     * On Java 9 or later, {@code EntryPublisher} publishes the contents in chunks as
+     * {@code java.util.concurrent.Flow.Publisher} with backpressure.
+     *
+     * @param entry the asar file entry
+     * @return the future of the read-only buffer of the contents of the specified asar file entry.
+     */
+    public CompletableFuture<ByteBuffer> readAsync(AsarEntry entry) {
+        checkFileAccess(entry);
+        ContentCache cache = contentCache;
+        boolean cacheable = cache != null && cache.admits(entry);
+        if (cacheable) {
+            ByteBuffer cached = cache.get(this, entry);
+            if (cached != null) return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<ByteBuffer> future;
+        if (asyncReadable(entry)) {
+            future = readFullyAsync(entry, 0, ByteBuffer.allocate(entry.getSize()));
+        } else if (buffer != null && !entry.isUnpacked()) {
+            // copying from the memory is faster than dispatching to other thread
+            future = new CompletableFuture<>();
+            try {
+                future.complete(ByteBuffer.wrap(readAllBytes(entry)));
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        } else {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return ByteBuffer.wrap(readAllBytes(entry));
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        if (!cacheable) return future.thenApply(ByteBuffer::asReadOnlyBuffer);
+        return future.thenApply(contents -> cache.put(this, entry, contents.array()));
+    }
+
+    /**
+     * Reads a sequence of bytes of the specified asar file entry from the given position asynchronously
+     * like {@link AsynchronousFileChannel#read(ByteBuffer, long)}.
+     * The buffer must not be used until the returned future is completed.
+     *
+     * @param entry    the asar file entry
+     * @param position the position in the entry to read from
+     * @param dst      the buffer to read into
+     * @return the future of the number of bytes read, possibly zero, or -1 if the position is at the end of the entry.
+     * @see #read(AsarEntry, long, ByteBuffer)
+     */
+    public CompletableFuture<Integer> readAsync(AsarEntry entry, long position, ByteBuffer dst) {
+        checkFileAccess(entry);
+        if (position < 0) throw new IllegalArgumentException("negative position");
+        Objects.requireNonNull(dst, "dst");
+        if (!asyncReadable(entry)) {
+            if (buffer != null && !isVerified(entry) && !entry.isUnpacked()) {
+                try {
+                    return CompletableFuture.completedFuture(readAt(entry, position, dst));
+                } catch (IOException e) {
+                    // never thrown in mapped mode
+                    throw new AssertionError(e);
+                }
+            }
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return read(entry, position, dst);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        }
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        long size = entry.getSize();
+        if (position >= size) {
+            future.complete(-1);
+            return future;
+        }
+        AsynchronousFileChannel channel;
+        try {
+            channel = asyncFile();
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
+        int dstLimit = dst.limit();
+        if (dst.remaining() > size - position)
+            dst.limit(dst.position() + (int) (size - position));
+        long start = System.nanoTime();
+        channel.read(dst, initialOffset + entry.offset + position, null, new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer result, Void attachment) {
+                dst.limit(dstLimit);
+                statistics.read(result, System.nanoTime() - start);
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Throwable exc, Void attachment) {
+                dst.limit(dstLimit);
+                future.completeExceptionally(exc);
+            }
+        });
+        return future;
+    }
+
+    // reads until dst is filled. the returned buffer is flipped dst.
+    CompletableFuture<ByteBuffer> readFullyAsync(AsarEntry entry, long position, ByteBuffer dst) {
+        CompletableFuture<ByteBuffer> future = new CompletableFuture<>();
+        readFullyAsync(entry, position, dst, future);
+        return future;
+    }
+
+    private void readFullyAsync(AsarEntry entry, long position, ByteBuffer dst, CompletableFuture<ByteBuffer> future) {
+        int begin = dst.position();
+        // loop while completed synchronously to avoid deep recursion
+        while (true) {
+            if (!dst.hasRemaining()) {
+                dst.flip();
+                future.complete(dst);
+                return;
+            }
+            CompletableFuture<Integer> read = readAsync(entry, position + dst.position() - begin, dst);
+            if (!read.isDone()) {
+                read.whenComplete((count, e) -> {
+                    if (e != null) future.completeExceptionally(e);
+                    else if (count == -1) future.completeExceptionally(
+                            new AsarException("the entry is out of the asar file: " + entry.getName()));
+                    else readFullyAsync(entry, position + dst.position() - begin, dst, future);
+                });
+                return;
+            }
+            int count;
+            try {
+                count = read.join();
+            } catch (CompletionException e) {
+                future.completeExceptionally(e.getCause());
+                return;
+            }
+            if (count == -1) {
+                future.completeExceptionally(
+                        new AsarException("the entry is out of the asar file: " + entry.getName()));
+                return;
+            }
+        }
+    }
+
+    private boolean asyncReadable(AsarEntry entry) {
+        return path != null && !isVerified(entry) && !entry.isUnpacked();
+    }
+
+    private AsynchronousFileChannel asyncFile() throws IOException {
+        AsynchronousFileChannel channel = asyncFile;
+        if (channel != null) return channel;
+        synchronized (this) {
+            eraseClose();
+            if (asyncFile == null)
+                asyncFile = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+            return asyncFile;
+        }
+    }
+
+    /**
+     * Reads all contents of the specified asar file entry.
+     * Unlike reading from {@link #getInputStream(AsarEntry)}, this reads directly into
+     * the array of the size of the entry.
+     *
+     * @param entry the asar file entry
+     * @return the contents of the specified asar file entry.
+     * @throws IOException if an I/O error has occurred
+     */
+    public byte[] readAllBytes(AsarEntry entry) throws IOException {
+        checkFileAccess(entry);
+        return readAllBytes0(entry);
+    }
+
+    private byte[] readAllBytes0(AsarEntry entry) throws IOException {
+        if (isVerified(entry) || entry.isUnpacked()) {
+            try (SeekableByteChannel channel = channel(entry)) {
+                if (channel.size() > Integer.MAX_VALUE - 8)
+                    throw new AsarException("the entry is too large to read: " + entry.getName());
+                ByteBuffer dst = ByteBuffer.allocate((int) channel.size());
+                while (dst.hasRemaining()) {
+                    if (channel.read(dst) == -1)
+                        throw new AsarException("the entry is out of the asar file: " + entry.getName());
+                }
+                return dst.array();
+            }
+        }
+        ByteBuffer dst = ByteBuffer.allocate(entry.getSize());
+        while (dst.hasRemaining()) {
+            if (readAt(entry, dst.position(), dst) == -1)
+                throw new AsarException("the entry is out of the asar file: " + entry.getName());
+        }
+        return dst.array();
+    }
+
+    /**
+     * Reads a sequence of bytes of the specified asar file entry from the given position
+     * like {@link FileChannel#read(ByteBuffer, long)}.
+     * This doesn't create channel for each call and doesn't have state so this can be
+     * called concurrently with the same entry.
+     *
+     * @param entry    the asar file entry
+     * @param position the position in the entry to read from
+     * @param dst      the buffer to read into
+     * @return the number of bytes read, possibly zero, or -1 if the position is at or after the end of the entry.
+     * @throws IOException if an I/O error has occurred
+     */
+    public int read(AsarEntry entry, long position, ByteBuffer dst) throws IOException {
+        checkFileAccess(entry);
+        if (position < 0) throw new IllegalArgumentException("negative position");
+        Objects.requireNonNull(dst, "dst");
+        if (isVerified(entry) || entry.isUnpacked()) {
+            try (SeekableByteChannel channel = channel(entry)) {
+                return channel.position(position).read(dst);
+            }
+        }
+        return readAt(entry, position, dst);
+    }
+
+    /**
+     * Reads contents of multiple asar file entries with {@link #DEFAULT_BATCH_GAP}.
+     *
+     * @param entries the asar file entries
+     * @return the map from entries to the read-only buffers of their contents in the order of entries.
+     * @throws IOException if an I/O error has occurred
+     * @see #readBatch(Collection, int)
+     */
+    public Map<AsarEntry, ByteBuffer> readBatch(Collection<? extends AsarEntry> entries) throws IOException {
+        return readBatch(entries, DEFAULT_BATCH_GAP);
+    }
+
+    /**
+     * Reads contents of multiple asar file entries.
+     * The entries are sorted by the offset in the asar file and the entries which are closer than
+     * {@code maxGap} bytes are read with a single read, so the number of reads is much smaller than
+     * reading each entry if entries are adjacent in the asar file.
+     * The returned buffers of the merged entries share the same memory.
+     * In mapped mode, the returned buffers share the mapped memory.
+     *
+     * @param entries the asar file entries
+     * @param maxGap  the maximum number of bytes between entries to be read with a single read.
+     * @return the map from entries to the read-only buffers of their contents in the order of entries.
+     * @throws IOException if an I/O error has occurred
+     */
+    public Map<AsarEntry, ByteBuffer> readBatch(Collection<? extends AsarEntry> entries, int maxGap) throws IOException {
+        if (maxGap < 0) throw new IllegalArgumentException("negative maxGap");
+        for (AsarEntry entry : entries)
+            checkFileAccess(entry);
+        return readBatch0(entries, maxGap);
+    }
+
+    // readBatch without recording access
+    private Map<AsarEntry, ByteBuffer> readBatch0(Collection<? extends AsarEntry> entries, int maxGap) throws IOException {
+        // placeholders of packed entries keep the order
+        Map<AsarEntry, ByteBuffer> result = new LinkedHashMap<>();
+        List<AsarEntry> packed = new ArrayList<>();
+        for (AsarEntry entry : entries) {
+            checkFileEntry(entry);
+            if (result.containsKey(entry)) continue;
+            if (isVerified(entry) || entry.isUnpacked()) {
+                result.put(entry, ByteBuffer.wrap(readAllBytes0(entry)).asReadOnlyBuffer());
+            } else if (buffer != null) {
+                ByteBuffer slice = slice(entry);
+                if (slice.remaining() != entry.getSize())
+                    throw new AsarException("the entry is out of the asar file: " + entry.getName());
+                result.put(entry, slice);
+            } else {
+                result.put(entry, null);
+                packed.add(entry);
+            }
+        }
+        packed.sort(Comparator.comparingLong(entry -> entry.offset));
+        for (int i = 0, j; i < packed.size(); i = j) {
+            long begin = packed.get(i).offset;
+            long end = begin + packed.get(i).getSize();
+            for (j = i + 1; j < packed.size(); j++) {
+                AsarEntry next = packed.get(j);
+                long nextEnd = Math.max(end, next.offset + next.getSize());
+                if (next.offset - end > maxGap || nextEnd - begin > MAX_BATCH_READ) break;
+                end = nextEnd;
+            }
+            ByteBuffer read = ByteBuffer.allocate((int) (end - begin));
+            while (read.hasRemaining()) {
+                if (SLROSByteChannel.read(file, lock, this, null, initialOffset + begin, end - begin,
+                        read.position(), read) == -1)
+                    throw new AsarException("the entry is out of the asar file: " + packed.get(j - 1).getName());
+            }
+            for (int k = i; k < j; k++) {
+                AsarEntry entry = packed.get(k);
+                ByteBuffer slice = read.asReadOnlyBuffer();
+                slice.limit((int) (entry.offset - begin) + entry.getSize());
+                slice.position((int) (entry.offset - begin));
+                result.put(entry, slice.slice());
+            }
+        }
+        return result;
+    }
+
+    private int readAt(AsarEntry entry, long position, ByteBuffer dst) throws IOException {
+        long size = entry.getSize();
+        if (buffer == null)
+            return SLROSByteChannel.read(file, lock, this, entry, initialOffset + entry.offset, size, position, dst);
+        long begin = initialOffset + entry.offset + position;
+        if (position >= size || begin >= buffer.limit()) return -1;
+        int length = (int) Math.min(Math.min(dst.remaining(), size - position), buffer.limit() - begin);
+        ByteBuffer slice = buffer.duplicate();
+        slice.position((int) begin);
+        slice.limit((int) begin + length);
+        dst.put(slice);
+        return length;
+    }
+
+    // opens the file in the .asar.unpacked directory
+    private FileChannel openUnpacked(AsarEntry entry) throws IOException {
+        if (unpackedDirectory == null)
+            throw new IllegalStateException("unpacked entries can only be read from the asar file opened with path");
+        return FileChannel.open(unpackedDirectory.resolve(entry.getName().substring(1)), StandardOpenOption.READ);
+    }
+
+    /**
+     * Returns a read-only buffer shares the contents of the specified asar file entry.
+     * This method can only be used for the asar file opened in mapped mode.
+     * For unpacked entries, the file in the unpacked directory will be mapped.
+     * In {@link #OPEN_VERIFY} mode, the whole of the contents is verified for each call.
+     *
+     * @param entry the asar file entry
+     * @return the read-only buffer of the contents of the specified asar file entry.
+     * @throws IllegalStateException if this asar file is not opened in mapped mode.
+     * @throws AsarException         if the contents of the entry is out of the asar file.
+     * @see #openMapped(Path)
+     * @see #AsarFile(ByteBuffer)
+     */
+    public ByteBuffer getByteBuffer(AsarEntry entry) throws AsarException {
+        checkFileAccess(entry);
+        if (buffer == null)
+            throw new IllegalStateException("this asar file is not opened in mapped mode");
+        ByteBuffer slice;
+        if (entry.isUnpacked()) {
+            try (FileChannel channel = openUnpacked(entry)) {
+                if (channel.size() > Integer.MAX_VALUE)
+                    throw new AsarException("unpacked file too large to map: " + entry.getName());
+                slice = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (AsarException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new AsarException("failed to map unpacked file: " + entry.getName(), e);
+            }
+        } else {
+            slice = slice(entry);
+        }
+        if (slice.remaining() != entry.getSize())
+            throw new AsarException("the entry is out of the asar file: " + entry.getName());
+        if (isVerified(entry)) {
+            try {
+                VerifyingByteChannel.verify(new ByteBufferChannel(slice.duplicate()),
+                        entry.getIntegrity(), entry.getName());
+            } catch (AsarException e) {
+                throw e;
+            } catch (IOException e) {
+                // reading from ByteBuffer doesn't throw
+                throw new AssertionError(e);
+            }
+        }
+        return slice;
+    }
+
+    // the slice may be shorter than the entry if the file is truncated.
+    private ByteBuffer slice(AsarEntry entry) {
+        ByteBuffer slice = buffer.asReadOnlyBuffer();
+        long begin = Math.min(initialOffset + entry.offset, slice.limit());
+        slice.position((int) begin);
+        slice.limit((int) Math.min(begin + entry.getSize(), slice.limit()));
+        return slice.slice();
+    }
+
+    /**
+     * Transfers the contents of the specified asar file entry to the channel.
+     * If this asar file is backed by a {@link FileChannel}, this uses
+     * {@link FileChannel#transferTo(long, long, WritableByteChannel)} so the contents may be
+     * transferred without copying to the memory. The target channel must be in blocking mode.
+     * In {@link #OPEN_VERIFY} mode, the contents with integrity are copied via the memory to be verified.
+     *
+     * @param entry  the asar file entry
+     * @param target the channel to write the contents to
+     * @return the number of bytes transferred
+     * @throws IOException if an I/O error has occurred
+     */
+    public long transferTo(AsarEntry entry, WritableByteChannel target) throws IOException {
+        return transferTo(entry, 0, target);
+    }
+
+    // transfers the contents of the file entry from the position
+    long transferTo(AsarEntry entry, long position, WritableByteChannel target) throws IOException {
+        checkFileAccess(entry);
+        Objects.requireNonNull(target, "target");
+        if (isVerified(entry)) {
+            // copy via verifying channel
+            try (SeekableByteChannel channel = channel(entry)) {
+                return copy(channel.position(position), channel.size() - position, target, entry);
+            }
+        } else if (entry.isUnpacked()) {
+            try (FileChannel channel = openUnpacked(entry)) {
+                return transfer(channel, position, channel.size() - position, target, entry);
+            }
+        } else if (position >= entry.getSize()) {
+            return 0;
+        } else if (buffer != null) {
+            // not getByteBuffer to record the access only once
+            ByteBuffer slice = slice(entry);
+            if (slice.remaining() != entry.getSize())
+                throw new AsarException("the entry is out of the asar file: " + entry.getName());
+            slice.position((int) position);
+            long transferred = 0;
+            while (slice.hasRemaining()) transferred += target.write(slice);
+            return transferred;
+        } else if (file instanceof FileChannel) {
+            long start = System.nanoTime();
+            Object event = AsarEvents.beginRead();
+            long transferred = transfer((FileChannel) file, initialOffset + entry.offset + position,
+                    entry.getSize() - position, target, entry);
+            statistics.read(transferred, System.nanoTime() - start);
+            if (event != null)
+                AsarEvents.endRead(event, archive, entry, initialOffset + entry.offset + position,
+                        transferred);
+            return transferred;
+        } else {
+            try (SeekableByteChannel channel = channel(entry)) {
+                return copy(channel.position(position), entry.getSize() - position, target, entry);
+            }
+        }
+    }
+
+    private static long transfer(FileChannel channel, long begin, long size,
+                                 WritableByteChannel target, AsarEntry entry) throws IOException {
+        long transferred = 0;
+        while (transferred < size) {
+            long count = channel.transferTo(begin + transferred, size - transferred, target);
+            if (count <= 0) throw new AsarException("the entry is out of the asar file: " + entry.getName());
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    private static long copy(ReadableByteChannel channel, long size,
+                             WritableByteChannel target, AsarEntry entry) throws IOException {
+        long transferred = 0;
+        ByteBuffer buffer = BufferPool.acquire();
+        try {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) transferred += target.write(buffer);
+                buffer.clear();
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        if (transferred < size)
+            throw new AsarException("the entry is out of the asar file: " + entry.getName());
+        return transferred;
+    }
+
+    /**
+     * Verifies the contents of all files with the integrity in the header.
+     * Files are hashed in parallel on the common fork join pool.
+     * Files without integrity are not verified.
+     *
+     * @throws AsarException if the contents of a file doesn't match the integrity.
+     * @throws IOException   if an I/O error has occurred
+     * @see #OPEN_VERIFY
+     */
+    public void verify() throws IOException {
+        eraseClose();
+        List<AsarEntry> files = new ArrayList<>();
+        for (AsarEntry entry : iterable) {
+            if (entry.getType() == AsarEntryType.FILE && entry.getIntegrity() != null)
+                files.add(entry);
+        }
+        try {
+            files.parallelStream().forEach(entry -> {
+                try {
+                    verify(entry);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Verifies the contents of the file with the integrity in the header.
+     * Nothing is done if the file doesn't have integrity.
+     *
+     * @param entry the asar file entry
+     * @throws AsarException if the contents of the file doesn't match the integrity.
+     * @throws IOException   if an I/O error has occurred
+     */
+    public void verify(AsarEntry entry) throws IOException {
+        checkFileEntry(entry);
+        AsarIntegrity integrity = entry.getIntegrity();
+        if (integrity == null) return;
+        try (SeekableByteChannel channel = rawChannel(entry)) {
+            VerifyingByteChannel.verify(channel, integrity, entry.getName());
+        }
+    }
+
+    /**
+     * Extracts all entries of this asar file to the directory.
+     * Links to out of the directory and writes through existing symlinks to out of the directory
+     * are rejected with {@link AsarException}.
+     *
+     * @param target the directory to extract to
+     * @throws IOException if an I/O error has occurred
+     * @see #extractTo(Path, ExtractOptions)
+     */
+    public void extractTo(Path target) throws IOException {
+        extractTo(target, new ExtractOptions());
+    }
+
+    /**
+     * Extracts entries of this asar file to the directory.
+     * Directories and links are created first, and then the contents of files are
+     * copied in parallel using {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * if possible. Executable files are extracted with execute permission.
+     *
+     * @param target  the directory to extract to
+     * @param options the options of extraction
+     * @throws IOException if an I/O error has occurred
+     */
+    public void extractTo(Path target, ExtractOptions options) throws IOException {
+        eraseClose();
+        Objects.requireNonNull(target, "target");
+        Objects.requireNonNull(options, "options");
+        new AsarExtractor(this, target, options).extract();
+    }
+
+    // checks the entry and records the access
+    private void checkFileAccess(AsarEntry entry) {
+        checkFileEntry(entry);
+        AccessProfile profile = recording;
+        if (profile != null) profile.record(entry);
+    }
+
+    private void checkFileEntry(AsarEntry entry) {
         eraseClose();
         if (entry == null) throw new NullPointerException("entry");
         if (entry.getType() != AsarEntryType.FILE) throw new IllegalArgumentException("the entry is not a file");
         if (entry.owner != this) throw new IllegalArgumentException("the entry is not of this file");
-        return new SLROSByteChannel(
-                file, initialOffset + entry.offset, entry.getSize(), this);
     }
 
     public Enumeration<? extends AsarEntry> entries() {
@@ -311,25 +1415,141 @@ public class AsarFile implements Closeable {
         return iterable;
     }
 
+    /**
+     * Returns the file entries in the ascending order of the offset in the asar file.
+     * Reading contents in this order reads the asar file sequentially so this is suitable
+     * for processing whole of the asar file like hashing or copying.
+     * Unpacked entries are at the end. The order is computed at the first call.
+     *
+     * @return the file entries in the order of the offset.
+     */
+    public Iterable<? extends AsarEntry> filesByOffset() {
+        eraseClose();
+        OffsetOrder order = this.offsetOrder;
+        if (order == null) {
+            order = table != null ? OffsetOrder.of(table, this) : OffsetOrder.of(stream());
+            this.offsetOrder = order;
+        }
+        return order;
+    }
+
     public Iterator<? extends AsarEntry> iterator() {
         eraseClose();
         return new Entries(rootEntry);
     }
 
+    /**
+     * Returns a stream of all entries in this asar file including root directory.
+     * The stream splits efficiently so parallel stream can be used for large asar files.
+     *
+     * @return the stream of entries.
+     */
     public Stream<? extends AsarEntry> stream() {
-        return StreamSupport.stream(Spliterators.spliterator(iterator(), count,
-                Spliterator.DISTINCT | Spliterator.SIZED | Spliterator.NONNULL | Spliterator.IMMUTABLE),
-                false);
+        eraseClose();
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Returns the entries whose names match the glob pattern in the order of names.
+     * The pattern is matched with the name of entries without the leading slash
+     * like {@code node_modules/foo/**}{@code /*.js}. The syntax is the same as the glob of
+     * {@link java.nio.file.FileSystem#getPathMatcher(String)} but the separator is always {@code /}
+     * and the names are matched case-sensitively on every platform.
+     * The entries are found with the index of names built at the first query, so only the entries
+     * under the literal directory part of the pattern, with the extension if the pattern ends with
+     * {@code *.ext}, are matched with the pattern.
+     *
+     * @param glob the glob pattern
+     * @return the stream of the matched entries.
+     */
+    public Stream<AsarEntry> find(String glob) {
+        return nameIndex().glob(Objects.requireNonNull(glob, "glob"));
+    }
+
+    /**
+     * Returns the entries whose names start with the prefix in the order of names.
+     * The leading slash of the prefix can be omitted. To list entries in a directory recursively,
+     * the prefix should end with a slash like {@code /node_modules/foo/}.
+     *
+     * @param prefix the prefix of names
+     * @return the stream of the entries.
+     */
+    public Stream<AsarEntry> listPrefix(String prefix) {
+        if (!prefix.startsWith("/")) prefix = '/' + prefix;
+        return nameIndex().prefix(prefix);
+    }
+
+    /**
+     * Returns the entries with the extension in the order of names.
+     * The extension is the part of the basename after the last dot.
+     *
+     * @param extension the extension with or without the leading dot like {@code js} or {@code .js}.
+     * @return the stream of the entries.
+     */
+    public Stream<AsarEntry> byExtension(String extension) {
+        if (extension.startsWith(".")) extension = extension.substring(1);
+        return nameIndex().extension(extension, "/");
+    }
+
+    private NameIndex nameIndex() {
+        eraseClose();
+        NameIndex index = this.nameIndex;
+        if (index == null) {
+            // may be built twice concurrently but the results are the same
+            index = new NameIndex(StreamSupport.stream(spliterator(), true));
+            this.nameIndex = index;
+        }
+        return index;
     }
 
+    private Spliterator<AsarEntry> spliterator() {
+        if (table != null)
+            return new TableSpliterator(table, this, 0, table.size());
+        if ((mode & OPEN_LAZY) != 0) {
+            // in lazy mode, directories are read on the thread walks the subtree.
+            return new SubtreeSpliterator(rootEntry);
+        }
+        return Spliterators.spliterator(entryArray(),
+                Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.IMMUTABLE);
+    }
+
+    // all entries in BFS order. cached for stream.
+    private AsarEntry[] entryArray() {
+        AsarEntry[] entries = this.entryArray;
+        if (entries == null) {
+            entries = new AsarEntry[count];
+            int i = 0;
+            for (Entries iterator = new Entries(rootEntry); iterator.hasNext(); )
+                entries[i++] = iterator.next();
+            this.entryArray = entries;
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the number of entries in this asar file including root directory.
+     * In lazy mode, this reads whole of the header at the first call.
+     *
+     * @return the number of entries.
+     */
     public int size() {
+        eraseClose();
+        int count = this.count;
+        if (count == -1)
+            this.count = count = countEntries();
         return count;
     }
 
     @Override
     public void close() throws IOException {
+        ContentCache cache = contentCache;
+        if (cache != null) cache.invalidate(this);
+        synchronized (this) {
+            if (asyncFile != null) asyncFile.close();
+        }
         file.close();
         file = null;
+        buffer = null;
     }
 
     private void eraseClose() {
@@ -341,7 +1561,7 @@ public class AsarFile implements Closeable {
         final Queue<AsarEntry> willBeProceed;
 
         private Entries(AsarEntry first) {
-            this.willBeProceed = new LinkedList<>();
+            this.willBeProceed = new ArrayDeque<>();
             willBeProceed.add(first);
         }
 
@@ -0,0 +1,128 @@
+package com.anatawa12.asar4j;
+
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+// the glob pattern for the names of asar entries.
+// the syntax is the same as FileSystem.getPathMatcher but the separator is always '/' and
+// the match is case-sensitive on every platform.
+// - '*' matches zero or more characters without '/'
+// - '**' matches zero or more characters with '/'
+// - '?' matches one character but '/'
+// - '[abc]', '[a-z]' and '[!a-z]' match one character in the set. '/' is never matched.
+// - '{a,b}' matches one of the comma separated subpatterns. groups cannot be nested.
+// - '\' escapes the next character
+final class AsarGlob implements Predicate<CharSequence> {
+    private final Pattern pattern;
+
+    private AsarGlob(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    static AsarGlob compile(String glob) {
+        return new AsarGlob(Pattern.compile(toRegex(glob)));
+    }
+
+    // tests the name relative from the root: without leading '/'
+    @Override
+    public boolean test(CharSequence name) {
+        return pattern.matcher(name).matches();
+    }
+
+    // tests the entry
+    boolean matches(AsarEntry entry) {
+        return matchesName(entry.getName());
+    }
+
+    // tests the entry name with leading '/' without copying the name
+    boolean matchesName(String name) {
+        return name.length() > 1 && pattern.matcher(name).region(1, name.length()).matches();
+    }
+
+    static String toRegex(String glob) {
+        StringBuilder regex = new StringBuilder(glob.length() + 16);
+        boolean inGroup = false;
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i++);
+            switch (c) {
+                case '\\':
+                    if (i == glob.length())
+                        throw new IllegalArgumentException("no character to escape at the end: " + glob);
+                    appendLiteral(regex, glob.charAt(i++));
+                    break;
+                case '*':
+                    if (i < glob.length() && glob.charAt(i) == '*') {
+                        regex.append(".*");
+                        i++;
+                    } else {
+                        regex.append("[^/]*");
+                    }
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    i = appendBracket(regex, glob, i);
+                    break;
+                case '{':
+                    if (inGroup) throw new IllegalArgumentException("cannot nest groups: " + glob);
+                    regex.append("(?:");
+                    inGroup = true;
+                    break;
+                case '}':
+                    if (inGroup) {
+                        regex.append(')');
+                        inGroup = false;
+                    } else {
+                        appendLiteral(regex, c);
+                    }
+                    break;
+                case ',':
+                    if (inGroup) regex.append('|');
+                    else appendLiteral(regex, c);
+                    break;
+                default:
+                    appendLiteral(regex, c);
+                    break;
+            }
+        }
+        if (inGroup) throw new IllegalArgumentException("missing '}': " + glob);
+        return regex.toString();
+    }
+
+    // appends the bracket expression begins at glob[begin - 1] and returns the index after ']'
+    private static int appendBracket(StringBuilder regex, String glob, int begin) {
+        int i = begin;
+        regex.append("[[^/]&&[");
+        if (i < glob.length() && glob.charAt(i) == '!') {
+            regex.append('^');
+            i++;
+        }
+        boolean first = true;
+        // true if the last character can be the start of a range
+        boolean range = false;
+        while (true) {
+            if (i == glob.length()) throw new IllegalArgumentException("missing ']': " + glob);
+            char c = glob.charAt(i++);
+            if (c == ']' && !first) break;
+            first = false;
+            if (c == '-' && range && i < glob.length() && glob.charAt(i) != ']') {
+                // '-' is a range only between two characters
+                regex.append('-');
+                range = false;
+            } else {
+                if ("-^[]&\\".indexOf(c) != -1) regex.append('\\');
+                regex.append(c);
+                range = true;
+            }
+        }
+        regex.append("]]");
+        return i;
+    }
+
+    private static void appendLiteral(StringBuilder regex, char c) {
+        if ("\\^$.|?*+()[]{}".indexOf(c) != -1) regex.append('\\');
+        regex.append(c);
+    }
+}
@@ -0,0 +1,172 @@
+package com.anatawa12.asar4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+// the index file for AsarFile.openIndexed
+final class AsarIndexFile {
+    /*
+     * index file format. all numbers are in little endian.
+     *
+     * +--------------------------------------+
+     * | magic: "asar4jix"                    |
+     * | int version: 2                       |
+     * | int reserved: 0                      |
+     * | long size of the asar file           |
+     * | long last modified time of the asar  |
+     * | long offset of the body              |
+     * | byte[32] SHA-256 of the header json  |
+     * +--------------------------------------+
+     * | AsarEntryTable in binary format      |
+     * +--------------------------------------+
+     */
+    private static final byte[] MAGIC = {'a', 's', 'a', 'r', '4', 'j', 'i', 'x'};
+    private static final int VERSION = 2;
+    private static final int SIZE_OFFSET = 16;
+    private static final int INITIAL_OFFSET_OFFSET = 32;
+    private static final int HASH_OFFSET = 40;
+    private static final int HASH_SIZE = 32;
+    private static final int TABLE_OFFSET = HASH_OFFSET + HASH_SIZE;
+
+    private AsarIndexFile() {
+    }
+
+    static AsarFile open(Path path, Path indexPath) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            long modified = attributes.lastModifiedTime().toMillis();
+            ByteBuffer index = mapIndex(indexPath);
+            AsarEntryTable mapped = index == null ? null : table(index);
+            // broken index is regenerated like stale one
+            if (mapped == null) index = null;
+
+            // fast path: same size and modified time
+            if (index != null && index.getLong(SIZE_OFFSET) == size && index.getLong(SIZE_OFFSET + 8) == modified)
+                return new AsarFile(channel, mapped, index.getLong(INITIAL_OFFSET_OFFSET), path);
+
+            AsarFile.Header header = AsarFile.readHeader(channel, new ReentrantLock());
+            byte[] hash = sha256(header.json);
+
+            // the asar file is touched or copied but header is not changed
+            if (index != null && index.getLong(INITIAL_OFFSET_OFFSET) == header.initialOffset
+                    && Arrays.equals(hash(index), hash)) {
+                try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.WRITE)) {
+                    indexChannel.write(key(size, modified), SIZE_OFFSET);
+                } catch (IOException ignored) {
+                    // the index is still valid. just failed to update key.
+                }
+                return new AsarFile(channel, mapped, header.initialOffset, path);
+            }
+
+            AsarEntryTable table = AsarEntryTable.read(new JsonReader(header.json));
+            try {
+                write(indexPath, size, modified, header.initialOffset, hash, table);
+            } catch (IOException ignored) {
+                // index file is just a cache. the directory may not be writable.
+            }
+            return new AsarFile(channel, table, header.initialOffset, path);
+        } catch (Throwable t) {
+            try {
+                channel.close();
+            } catch (Throwable closing) {
+                t.addSuppressed(closing);
+            }
+            throw t;
+        }
+    }
+
+    // maps the index file. returns null if not exists or invalid.
+    private static ByteBuffer mapIndex(Path indexPath) throws IOException {
+        if (!Files.isRegularFile(indexPath)) return null;
+        ByteBuffer index;
+        try (FileChannel channel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            if (channel.size() < TABLE_OFFSET || channel.size() > Integer.MAX_VALUE) return null;
+            index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        index.order(ByteOrder.LITTLE_ENDIAN);
+        byte[] magic = new byte[MAGIC.length];
+        index.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) return null;
+        if (index.getInt() != VERSION) return null;
+        return index;
+    }
+
+    // maps the table in the index. returns null if the table is broken.
+    private static AsarEntryTable table(ByteBuffer index) {
+        ByteBuffer table = index.duplicate();
+        table.position(TABLE_OFFSET);
+        try {
+            return AsarEntryTable.map(table);
+        } catch (AsarException e) {
+            return null;
+        }
+    }
+
+    private static byte[] hash(ByteBuffer index) {
+        byte[] hash = new byte[HASH_SIZE];
+        ByteBuffer duplicate = index.duplicate();
+        duplicate.position(HASH_OFFSET);
+        duplicate.get(hash);
+        return hash;
+    }
+
+    private static ByteBuffer key(long size, long modified) {
+        ByteBuffer key = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        key.putLong(size);
+        key.putLong(modified);
+        key.flip();
+        return key;
+    }
+
+    private static void write(Path indexPath, long size, long modified, long initialOffset,
+                              byte[] hash, AsarEntryTable table) throws IOException {
+        ByteBuffer head = ByteBuffer.allocate(TABLE_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+        head.put(MAGIC);
+        head.putInt(VERSION);
+        head.putInt(0);
+        head.put(key(size, modified));
+        head.putLong(initialOffset);
+        head.put(hash);
+        head.flip();
+        ByteBuffer body = table.toBinary();
+
+        Path directory = indexPath.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, indexPath.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                while (head.hasRemaining()) channel.write(head);
+                while (body.hasRemaining()) channel.write(body);
+            }
+            try {
+                Files.move(temp, indexPath, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static byte[] sha256(byte[] bytes) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required for all java platform
+            throw new AssertionError(e);
+        }
+    }
+}
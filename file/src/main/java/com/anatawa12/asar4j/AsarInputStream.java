@@ -0,0 +1,204 @@
+package com.anatawa12.asar4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The input stream reads an asar file from a non-seekable source like {@link java.util.zip.ZipInputStream}.
+ * After the header is read, the entries are returned by {@link #getNextEntry()} and the contents of
+ * the current file entry can be read from this stream.
+ * Directories, links and unpacked files, which have no contents in the asar file, are returned first,
+ * and then the packed files are returned in the order of the offset so the source is read sequentially.
+ * Only the header is kept in the memory.
+ * The contents of file entries which overlap the contents of the previous entry cannot be read.
+ */
+public class AsarInputStream extends InputStream {
+    private final InputStream in;
+    private AsarEntryTable table;
+    // the indices of table in the order of returning
+    private int[] order;
+    private int next;
+    // the number of bytes read from the body
+    private long position;
+    // the remaining bytes of current entry
+    private long remaining;
+    private AsarEntry current;
+    private boolean closed;
+
+    /**
+     * Creates an asar input stream.
+     * The header is read at the first call of {@link #getNextEntry()}.
+     *
+     * @param in the source of the asar file
+     */
+    public AsarInputStream(InputStream in) {
+        if (in == null) throw new NullPointerException("in");
+        this.in = in;
+    }
+
+    /**
+     * Reads the next entry and positions this stream at the beginning of the contents.
+     *
+     * @return the next entry or null if there are no more entries.
+     * @throws IOException if an I/O error has occurred or the header is invalid.
+     */
+    public AsarEntry getNextEntry() throws IOException {
+        ensureOpen();
+        if (table == null) readHeader();
+        else closeEntry();
+        if (next == order.length) return null;
+        int index = order[next++];
+        AsarEntry entry = new AsarTableEntry(table, index, null);
+        if (entry.getType() == AsarEntryType.FILE && !entry.isUnpacked()) {
+            if (entry.offset < position) {
+                // the contents are already passed
+                remaining = -1;
+            } else {
+                skipFully(entry.offset - position);
+                position = entry.offset;
+                remaining = entry.getSize();
+            }
+        } else {
+            remaining = 0;
+        }
+        current = entry;
+        return entry;
+    }
+
+    /**
+     * Closes the current entry and positions this stream for reading the next entry.
+     *
+     * @throws IOException if an I/O error has occurred
+     */
+    public void closeEntry() throws IOException {
+        ensureOpen();
+        if (remaining > 0) {
+            skipFully(remaining);
+            position += remaining;
+        }
+        remaining = 0;
+        current = null;
+    }
+
+    private void readHeader() throws IOException {
+        // see AsarFile.readHeader for the format
+        ByteBuffer sizeFields = ByteBuffer.wrap(readFully(16)).order(ByteOrder.LITTLE_ENDIAN);
+        if (sizeFields.getInt() != 4)
+            throw new AsarException("invalid header: invalid size of size field");
+        long headerSize = sizeFields.getInt() & 0xFFFF_FFFFL;
+        if ((sizeFields.getInt() & 0xFFFF_FFFFL) != headerSize - 4)
+            throw new AsarException("invalid header: invalid size of json");
+        long jsonSize = sizeFields.getInt() & 0xFFFF_FFFFL;
+        if (jsonSize > Integer.MAX_VALUE || 8 + jsonSize > headerSize)
+            throw new AsarException("invalid header: too large header");
+        byte[] json = readFully((int) jsonSize);
+        // padding of the header
+        skipFully(headerSize + 8 - 16 - jsonSize);
+
+        AsarEntryTable table = AsarEntryTable.read(new JsonReader(json));
+        int packed = 0;
+        for (int i = 1; i < table.size(); i++) {
+            if (table.type(i) == AsarEntryType.FILE && !table.isUnpacked(i)) packed++;
+        }
+        int[] order = new int[table.size() - 1];
+        int[] files = new int[packed];
+        long[] offsets = new long[packed];
+        int others = 0;
+        packed = 0;
+        for (int i = 1; i < table.size(); i++) {
+            if (table.type(i) == AsarEntryType.FILE && !table.isUnpacked(i)) {
+                files[packed] = i;
+                offsets[packed++] = table.offset(i);
+            } else {
+                order[others++] = i;
+            }
+        }
+        int[] sorted = OffsetOrder.sortedIndices(offsets);
+        for (int i = 0; i < sorted.length; i++)
+            order[others + i] = files[sorted[i]];
+        this.table = table;
+        this.order = order;
+    }
+
+    private byte[] readFully(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        int read = 0;
+        while (read < size) {
+            int count = in.read(bytes, read, size - read);
+            if (count == -1) throw new EOFException("unexpected end of asar file");
+            read += count;
+        }
+        return bytes;
+    }
+
+    private void skipFully(long count) throws IOException {
+        while (count > 0) {
+            long skipped = in.skip(count);
+            if (skipped <= 0) {
+                // skip may return 0 before the end of stream
+                if (in.read() == -1) throw new EOFException("unexpected end of asar file");
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    private boolean checkReadable() throws IOException {
+        ensureOpen();
+        if (remaining == -1)
+            throw new AsarException("the contents of " + current.getName() + " overlaps previous entry");
+        return remaining != 0;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!checkReadable()) return -1;
+        int read = in.read();
+        if (read == -1) throw new EOFException("unexpected end of asar file");
+        remaining--;
+        position++;
+        return read;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+        if (!checkReadable()) return -1;
+        if (len == 0) return 0;
+        int read = in.read(b, off, (int) Math.min(len, remaining));
+        if (read == -1) throw new EOFException("unexpected end of asar file");
+        remaining -= read;
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0 || !checkReadable()) return 0;
+        long skipped = in.skip(Math.min(n, remaining));
+        remaining -= skipped;
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        if (remaining <= 0) return 0;
+        return (int) Math.min(in.available(), remaining);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        in.close();
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Stream closed");
+    }
+}
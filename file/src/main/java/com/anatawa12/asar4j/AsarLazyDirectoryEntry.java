@@ -0,0 +1,75 @@
+package com.anatawa12.asar4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+// the directory entry of AsarFile opened with OPEN_LAZY.
+// children will be read from the header when first accessed.
+class AsarLazyDirectoryEntry extends AsarEntry {
+    // null after children read
+    private byte[] header;
+    // the index of '{' of files object in header
+    private final int filesBegin;
+    private volatile Map<String, AsarEntry> entries;
+
+    // the entry is root directory if parent is null.
+    AsarLazyDirectoryEntry(AsarEntry parent, String basename, byte[] header, int filesBegin) {
+        super(parent, basename);
+        this.header = header;
+        this.filesBegin = filesBegin;
+    }
+
+    private Map<String, AsarEntry> entries() {
+        Map<String, AsarEntry> entries = this.entries;
+        if (entries != null) return entries;
+        synchronized (this) {
+            if (this.entries != null) return this.entries;
+            try {
+                Map<String, AsarEntry> files = new HashMap<>();
+                // directories may be read concurrently so NamePool is not shared.
+                AsarFile.readFiles(new JsonReader(header, filesBegin), this, files,
+                        (AsarFile) owner, header, new NamePool());
+                entries = Collections.unmodifiableMap(files);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            this.entries = entries;
+            header = null;
+            return entries;
+        }
+    }
+
+    @Override
+    public AsarEntryType getType() {
+        return AsarEntryType.DIRECTORY;
+    }
+
+    @Override
+    public Collection<AsarEntry> getChildren() throws IllegalStateException {
+        return Collections.unmodifiableCollection(entries().values());
+    }
+
+    @Override
+    public AsarEntry getChild(String name) throws IllegalStateException {
+        return entries().get(name);
+    }
+
+    @Override
+    AsarEntry getChild(NameRegion name) throws IllegalStateException {
+        return entries().get(name);
+    }
+
+    @Override
+    public boolean isExecutable() {
+        throw new IllegalStateException("this is not FILE, but DIRECTORY");
+    }
+
+    @Override
+    public void setExecutable(boolean executable) {
+        throw new IllegalStateException("this is not FILE, but DIRECTORY");
+    }
+}
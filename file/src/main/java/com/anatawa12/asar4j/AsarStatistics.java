@@ -0,0 +1,168 @@
+package com.anatawa12.asar4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The counters of the operations on an {@link AsarFile}.
+ * The counters are updated concurrently without lock and the values returned from getters are
+ * not a consistent snapshot of all counters.
+ * The reads count only the reads from the underlying channel. The accesses to the mapped memory
+ * in mapped mode are not counted.
+ *
+ * @see AsarFile#getStatistics()
+ */
+public final class AsarStatistics {
+    private final AsarFile file;
+    private final LongAdder lookupHits = new LongAdder();
+    private final LongAdder lookupMisses = new LongAdder();
+    private final LongAdder opens = new LongAdder();
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder readNanos = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private volatile long headerParseNanos;
+    private volatile Listener listener;
+
+    AsarStatistics(AsarFile file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the number of entries found by {@link AsarFile#getEntry(String)}.
+     */
+    public long getLookupHitCount() {
+        return lookupHits.sum();
+    }
+
+    /**
+     * @return the number of names not found by {@link AsarFile#getEntry(String)}.
+     */
+    public long getLookupMissCount() {
+        return lookupMisses.sum();
+    }
+
+    /**
+     * @return the number of channels and input streams opened for entries.
+     */
+    public long getOpenCount() {
+        return opens.sum();
+    }
+
+    /**
+     * @return the number of reads from the underlying channel.
+     */
+    public long getReadCount() {
+        return reads.sum();
+    }
+
+    /**
+     * @return the number of bytes read from the underlying channel.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * @return the total time spent in reads from the underlying channel in nanoseconds,
+     * including the time waiting for the lock.
+     */
+    public long getReadNanos() {
+        return readNanos.sum();
+    }
+
+    /**
+     * @return the total time waiting for the lock of the channel which is not a
+     * {@link java.nio.channels.FileChannel} in nanoseconds.
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    /**
+     * @return the time to read and parse the header in nanoseconds.
+     */
+    public long getHeaderParseNanos() {
+        return headerParseNanos;
+    }
+
+    /**
+     * Estimates the size of the java heap retained by the entries of the asar file.
+     * This walks all entries so this is not cheap. In lazy mode, this is the size of the header
+     * retained until all directories are read.
+     *
+     * @return the estimated size in bytes.
+     */
+    public long getEstimatedHeapSize() {
+        return file.estimateHeapSize();
+    }
+
+    /**
+     * Sets the listener called for each operation.
+     * The listener is called on the thread performing the operation so it should be fast.
+     *
+     * @param listener the listener or null
+     */
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    void lookup(CharSequence name, boolean found) {
+        (found ? lookupHits : lookupMisses).increment();
+        Listener listener = this.listener;
+        if (listener != null) listener.onLookup(name, found);
+    }
+
+    void open(AsarEntry entry) {
+        opens.increment();
+        Listener listener = this.listener;
+        if (listener != null) listener.onOpen(entry);
+    }
+
+    void read(long bytes, long nanos) {
+        reads.increment();
+        if (bytes > 0) bytesRead.add(bytes);
+        readNanos.add(nanos);
+        Listener listener = this.listener;
+        if (listener != null) listener.onRead(bytes, nanos);
+    }
+
+    void lockWait(long nanos) {
+        lockWaitNanos.add(nanos);
+    }
+
+    void headerParsed(long nanos) {
+        headerParseNanos = nanos;
+    }
+
+    /**
+     * The listener of operations to export the statistics to other metrics systems.
+     * All methods do nothing by default.
+     */
+    public interface Listener {
+        /**
+         * Called when an entry is looked up by name.
+         *
+         * @param name  the name looked up. this may be a mutable {@link CharSequence} so should not be retained.
+         * @param found true if the entry is found.
+         */
+        default void onLookup(CharSequence name, boolean found) {
+        }
+
+        /**
+         * Called when a channel or an input stream is opened for an entry.
+         *
+         * @param entry the entry
+         */
+        default void onOpen(AsarEntry entry) {
+        }
+
+        /**
+         * Called when a read from the underlying channel is finished.
+         *
+         * @param bytes the number of bytes read or -1 for the end of the channel.
+         * @param nanos the time spent in nanoseconds.
+         */
+        default void onRead(long bytes, long nanos) {
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.anatawa12.asar4j;
+
+import java.util.AbstractList;
+import java.util.Collection;
+
+// the view of an entry of AsarEntryTable. created when handed out by AsarFile.
+class AsarTableEntry extends AsarEntry {
+    private final AsarEntryTable table;
+    private final int index;
+
+    AsarTableEntry(AsarEntryTable table, int index, AsarFile owner) {
+        this.table = table;
+        this.index = index;
+        if (table.type(index) == AsarEntryType.FILE) {
+            setSize(table.bodySize(index));
+            super.setExecutable(table.isExecutable(index));
+            offset = table.offset(index);
+        }
+        unpacked = table.isUnpacked(index);
+        this.owner = owner;
+    }
+
+    AsarEntryTable table() {
+        return table;
+    }
+
+    int index() {
+        return index;
+    }
+
+    @Override
+    String computeName() {
+        return table.path(index);
+    }
+
+    @Override
+    String computeBasename() {
+        if (index == 0)
+            throw new IllegalStateException("root directory entry doesn't have basename");
+        return table.basename(index);
+    }
+
+    @Override
+    public AsarIntegrity getIntegrity() {
+        return table.integrity(index);
+    }
+
+    @Override
+    public AsarEntryType getType() {
+        return table.type(index);
+    }
+
+    @Override
+    public String getLinkTarget() throws IllegalStateException {
+        if (getType() != AsarEntryType.LINK)
+            return super.getLinkTarget();
+        return table.linkTarget(index);
+    }
+
+    @Override
+    public Collection<AsarEntry> getChildren() throws IllegalStateException {
+        if (getType() != AsarEntryType.DIRECTORY)
+            return super.getChildren();
+        return new AbstractList<AsarEntry>() {
+            @Override
+            public AsarEntry get(int i) {
+                if (i < 0 || i >= size()) throw new IndexOutOfBoundsException(String.valueOf(i));
+                return new AsarTableEntry(table, table.child(index, i), (AsarFile) owner);
+            }
+
+            @Override
+            public int size() {
+                return table.childCount(index);
+            }
+        };
+    }
+
+    @Override
+    public AsarEntry getChild(String name) throws IllegalStateException {
+        if (getType() != AsarEntryType.DIRECTORY)
+            return super.getChild(name);
+        int child = table.findChild(index, name);
+        return child == -1 ? null : new AsarTableEntry(table, child, (AsarFile) owner);
+    }
+
+    @Override
+    AsarEntry getChild(NameRegion name) throws IllegalStateException {
+        if (getType() != AsarEntryType.DIRECTORY)
+            return super.getChild(name);
+        int child = table.findChild(index, name);
+        return child == -1 ? null : new AsarTableEntry(table, child, (AsarFile) owner);
+    }
+
+    @Override
+    public boolean isExecutable() {
+        if (getType() != AsarEntryType.FILE)
+            throw new IllegalStateException("this is not FILE, but " + getType());
+        return super.isExecutable();
+    }
+
+    @Override
+    public void setExecutable(boolean executable) {
+        if (getType() != AsarEntryType.FILE)
+            throw new IllegalStateException("this is not FILE, but " + getType());
+        super.setExecutable(executable);
+    }
+}
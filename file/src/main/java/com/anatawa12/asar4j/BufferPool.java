@@ -0,0 +1,39 @@
+package com.anatawa12.asar4j;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+
+// the pool of buffers.
+// direct buffers are used to copy contents between channels because direct buffers are expensive to
+// allocate and reading into heap buffers copies via temporary direct buffer.
+// arrays are used by input streams.
+final class BufferPool {
+    static final int BUFFER_SIZE = 64 * 1024;
+    // the number of buffers kept. if more buffers are released, they will be collected by GC.
+    private static final int POOL_SIZE = 16;
+    private static final ArrayBlockingQueue<ByteBuffer> pool = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final ArrayBlockingQueue<byte[]> arrayPool = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private BufferPool() {
+    }
+
+    static ByteBuffer acquire() {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null) return ByteBuffer.allocateDirect(BUFFER_SIZE);
+        buffer.clear();
+        return buffer;
+    }
+
+    static void release(ByteBuffer buffer) {
+        pool.offer(buffer);
+    }
+
+    static byte[] acquireArray() {
+        byte[] array = arrayPool.poll();
+        return array != null ? array : new byte[BUFFER_SIZE];
+    }
+
+    static void releaseArray(byte[] array) {
+        arrayPool.offer(array);
+    }
+}
@@ -0,0 +1,76 @@
+package com.anatawa12.asar4j;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+// Read Only Seekable channel over a ByteBuffer. the buffer is not shared with other channels.
+class ByteBufferChannel implements SeekableByteChannel {
+    private ByteBuffer buffer;
+
+    ByteBufferChannel(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public int read(ByteBuffer dst) {
+        checkClose();
+        if (!buffer.hasRemaining()) return -1;
+        int read = Math.min(dst.remaining(), buffer.remaining());
+        if (read == buffer.remaining()) {
+            dst.put(buffer);
+        } else {
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + read);
+            dst.put(buffer);
+            buffer.limit(limit);
+        }
+        return read;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return buffer != null;
+    }
+
+    @Override
+    public void close() {
+        buffer = null;
+    }
+
+    private void checkClose() {
+        if (!isOpen()) throw new IllegalStateException("closed");
+    }
+
+    @Override
+    public long position() {
+        checkClose();
+        return buffer.position();
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) {
+        checkClose();
+        if (newPosition < 0) throw new IllegalArgumentException("negative position");
+        buffer.position((int) Math.min(newPosition, buffer.limit()));
+        return this;
+    }
+
+    @Override
+    public long size() {
+        checkClose();
+        return buffer.limit();
+    }
+
+    // modification operations
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+}
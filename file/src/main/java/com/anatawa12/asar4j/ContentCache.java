@@ -0,0 +1,184 @@
+package com.anatawa12.asar4j;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The cache of contents of asar file entries with a byte budget.
+ * The least recently used contents are evicted when the total size of cached contents exceeds
+ * the budget. A cache can be shared by multiple asar files with {@link AsarFile#setContentCache(ContentCache)}.
+ * Unpacked entries are not cached because the files in the unpacked directory may be changed.
+ */
+public final class ContentCache {
+    private final long maximumSize;
+    private final int maximumEntrySize;
+    private final boolean direct;
+    // guarded by this
+    private final LinkedHashMap<Key, ByteBuffer> contents = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * Creates a cache stores contents on the java heap.
+     * Contents larger than 1/8 of the budget are not cached.
+     *
+     * @param maximumSize the byte budget of the cache.
+     */
+    public ContentCache(long maximumSize) {
+        this(maximumSize, (int) Math.min(maximumSize / 8, Integer.MAX_VALUE), false);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param maximumSize      the byte budget of the cache.
+     * @param maximumEntrySize the size of the largest contents to be cached.
+     * @param direct           true if contents should be stored in direct buffers out of the java heap.
+     */
+    public ContentCache(long maximumSize, int maximumEntrySize, boolean direct) {
+        if (maximumSize < 0) throw new IllegalArgumentException("negative maximumSize");
+        if (maximumEntrySize < 0) throw new IllegalArgumentException("negative maximumEntrySize");
+        this.maximumSize = maximumSize;
+        this.maximumEntrySize = (int) Math.min(maximumEntrySize, maximumSize);
+        this.direct = direct;
+    }
+
+    /**
+     * @return the byte budget of this cache.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the size of the largest contents to be cached.
+     */
+    public int getMaximumEntrySize() {
+        return maximumEntrySize;
+    }
+
+    /**
+     * @return the total size of cached contents in bytes.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of cached contents.
+     */
+    public synchronized int getCount() {
+        return contents.size();
+    }
+
+    /**
+     * @return the number of times the contents were found in this cache.
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the number of times the contents were not found in this cache.
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the number of contents evicted to keep the budget.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Removes all contents from this cache.
+     */
+    public synchronized void invalidateAll() {
+        contents.clear();
+        size = 0;
+    }
+
+    // removes contents of the file. called when the file is closed.
+    synchronized void invalidate(AsarFile file) {
+        Iterator<Map.Entry<Key, ByteBuffer>> iterator = contents.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Key, ByteBuffer> entry = iterator.next();
+            if (entry.getKey().file == file) {
+                size -= entry.getValue().capacity();
+                iterator.remove();
+            }
+        }
+    }
+
+    boolean admits(AsarEntry entry) {
+        return !entry.isUnpacked() && entry.getSize() <= maximumEntrySize;
+    }
+
+    // returns read-only duplicate of cached contents or null
+    synchronized ByteBuffer get(AsarFile file, AsarEntry entry) {
+        ByteBuffer buffer = contents.get(new Key(file, entry.offset, entry.getSize()));
+        if (buffer == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        return buffer.duplicate();
+    }
+
+    // stores the contents and returns read-only buffer of them
+    ByteBuffer put(AsarFile file, AsarEntry entry, byte[] bytes) {
+        ByteBuffer buffer;
+        if (direct) {
+            buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+        } else {
+            buffer = ByteBuffer.wrap(bytes);
+        }
+        buffer = buffer.asReadOnlyBuffer();
+        synchronized (this) {
+            ByteBuffer old = contents.put(new Key(file, entry.offset, entry.getSize()), buffer);
+            if (old != null) size -= old.capacity();
+            size += bytes.length;
+            Iterator<ByteBuffer> iterator = contents.values().iterator();
+            while (size > maximumSize) {
+                size -= iterator.next().capacity();
+                iterator.remove();
+                evictionCount++;
+            }
+        }
+        return buffer.duplicate();
+    }
+
+    // the contents are identified by the range in the asar file so duplicated entries share the contents.
+    private static final class Key {
+        final AsarFile file;
+        final long offset;
+        final int size;
+
+        Key(AsarFile file, long offset, int size) {
+            this.file = file;
+            this.offset = offset;
+            this.size = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return file == key.file && offset == key.offset && size == key.size;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(file) * 31 + Long.hashCode(offset)) * 31 + size;
+        }
+    }
+}
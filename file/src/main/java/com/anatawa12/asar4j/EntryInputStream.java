@@ -0,0 +1,185 @@
+package com.anatawa12.asar4j;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+
+// the input stream returned by AsarFile.getInputStream.
+// the contents are read ahead into the pooled buffer. the size of read-ahead is doubled
+// while the stream is read sequentially and reset when the stream is seeked.
+class EntryInputStream extends InputStream {
+    static final int MIN_READ_AHEAD = 4 * 1024;
+
+    private final AsarFile file;
+    private final AsarEntry entry;
+    private final SeekableByteChannel channel;
+    private final long size;
+    private byte[] buffer;
+    // the position in the entry of buffer[0]
+    private long bufferPosition;
+    // the number of valid bytes in buffer
+    private int count;
+    // the index of the next byte in buffer
+    private int pos;
+    private int readAhead = MIN_READ_AHEAD;
+    private long mark;
+    private boolean closed;
+
+    // size() of the channel for unpacked entries may throw
+    EntryInputStream(AsarFile file, AsarEntry entry, SeekableByteChannel channel) throws IOException {
+        this.file = file;
+        this.entry = entry;
+        this.channel = channel;
+        this.size = channel.size();
+    }
+
+    private long position() {
+        return bufferPosition + pos;
+    }
+
+    // returns false if end of the entry
+    private boolean fill() throws IOException {
+        ensureOpen();
+        long position = position();
+        if (position >= size) return false;
+        if (buffer == null) {
+            buffer = BufferPool.acquireArray();
+        } else if (count != 0) {
+            // sequential access: read more next time
+            readAhead = Math.min(readAhead * 2, buffer.length);
+        }
+        bufferPosition = position;
+        pos = 0;
+        count = 0;
+        int read = channel.read(ByteBuffer.wrap(buffer, 0, (int) Math.min(readAhead, size - position)));
+        if (read == -1) return false;
+        count = read;
+        return true;
+    }
+
+    // moves to the position. keeps buffer if the position is in buffer.
+    private void seek(long position) throws IOException {
+        if (bufferPosition <= position && position <= bufferPosition + count) {
+            pos = (int) (position - bufferPosition);
+        } else {
+            channel.position(position);
+            bufferPosition = position;
+            pos = 0;
+            count = 0;
+            // random access: read less
+            readAhead = MIN_READ_AHEAD;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos == count && !fill()) return -1;
+        return buffer[pos++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) throw new IndexOutOfBoundsException();
+        ensureOpen();
+        if (len == 0) return 0;
+        int buffered = count - pos;
+        if (buffered > 0) {
+            int read = Math.min(buffered, len);
+            System.arraycopy(buffer, pos, b, off, read);
+            pos += read;
+            return read;
+        }
+        if (len >= readAhead) {
+            // large read: read into b directly
+            long position = position();
+            if (position >= size) return -1;
+            int read = channel.read(ByteBuffer.wrap(b, off, len));
+            if (read > 0) {
+                bufferPosition = position + read;
+                pos = 0;
+                count = 0;
+            }
+            return read;
+        }
+        if (!fill()) return -1;
+        int read = Math.min(count, len);
+        System.arraycopy(buffer, 0, b, off, read);
+        pos = read;
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        ensureOpen();
+        if (n <= 0) return 0;
+        long position = position();
+        long skip = Math.min(n, Math.max(0, size - position));
+        seek(position + skip);
+        return skip;
+    }
+
+    @Override
+    public int available() throws IOException {
+        ensureOpen();
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, size - position()));
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    // the channel is seekable so readlimit is ignored
+    @Override
+    public void mark(int readlimit) {
+        mark = position();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        ensureOpen();
+        seek(mark);
+    }
+
+    // overrides InputStream.transferTo since java 9.
+    // if out is FileOutputStream, this copies via AsarFile.transferTo without copying to heap.
+    public long transferTo(OutputStream out) throws IOException {
+        if (out == null) throw new NullPointerException("out");
+        ensureOpen();
+        long transferred = count - pos;
+        if (transferred > 0) {
+            out.write(buffer, pos, count - pos);
+            pos = count;
+        }
+        long position = position();
+        if (out instanceof FileOutputStream) {
+            long remaining = file.transferTo(entry, position, ((FileOutputStream) out).getChannel());
+            seek(position + remaining);
+            return transferred + remaining;
+        }
+        while (fill()) {
+            out.write(buffer, 0, count);
+            pos = count;
+            transferred += count;
+        }
+        return transferred;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        channel.close();
+        if (buffer != null) {
+            BufferPool.releaseArray(buffer);
+            buffer = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new IOException("Stream closed");
+    }
+}
@@ -0,0 +1,119 @@
+package com.anatawa12.asar4j;
+
+import java.util.Arrays;
+
+// resolves entry name in place without splitting it into components.
+// the instances are per thread so resolving found entry allocates nothing.
+final class EntryResolver {
+    private static final ThreadLocal<EntryResolver> RESOLVERS = ThreadLocal.withInitial(EntryResolver::new);
+    // same as MAXSYMLINKS of linux
+    private static final int MAX_LINKS = 40;
+
+    private final NameRegion region = new NameRegion();
+    // the directories from root to current. ".." pops.
+    private AsarEntry[] stack = new AsarEntry[16];
+    private int depth;
+    private int links;
+
+    private EntryResolver() {
+    }
+
+    static AsarEntry resolve(CharSequence name, boolean resolveLastLink, AsarEntry rootEntry) {
+        EntryResolver resolver = RESOLVERS.get();
+        try {
+            resolver.push(rootEntry);
+            if (!resolver.walk(name, resolveLastLink, true)) return null;
+            return resolver.depth == 0 ? null : resolver.stack[resolver.depth - 1];
+        } finally {
+            resolver.reset();
+        }
+    }
+
+    // throws IllegalArgumentException if the name has '.' or '..' component.
+    static void checkNoDots(CharSequence name) {
+        int i = 0;
+        int length = name.length();
+        while (i < length) {
+            int end = componentEnd(name, i, length);
+            if (isDots(name, i, end))
+                throw new IllegalArgumentException("path have . or ..");
+            i = end + 1;
+        }
+    }
+
+    // returns false if not found
+    private boolean walk(CharSequence path, boolean resolveLastLink, boolean last) {
+        int length = path.length();
+        int begin = skipSeparators(path, 0, length);
+        while (begin < length) {
+            int end = componentEnd(path, begin, length);
+            int next = skipSeparators(path, end, length);
+            if (depth == 0) return false;
+            AsarEntry cur = stack[depth - 1];
+            if (cur.getType() != AsarEntryType.DIRECTORY) return false;
+
+            if (end - begin == 2 && isDots(path, begin, end)) {
+                stack[--depth] = null;
+            } else if (end - begin != 1 || !isDots(path, begin, end)) {
+                AsarEntry child = cur.getChild(region.set(path, begin, end));
+                region.clear();
+                if (child == null) return false;
+                switch (child.getType()) {
+                    case DIRECTORY:
+                    case FILE:
+                        push(child);
+                        break;
+                    case LINK:
+                        boolean lastComponent = last && next == length;
+                        if (resolveLastLink || !lastComponent) {
+                            // link loop
+                            if (++links > MAX_LINKS) return false;
+                            if (!walk(child.getLinkTarget(), resolveLastLink, lastComponent)) return false;
+                        } else {
+                            push(child);
+                        }
+                        break;
+                    default:
+                        throw new AssertionError();
+                }
+            }
+            begin = next;
+        }
+        return true;
+    }
+
+    private void push(AsarEntry entry) {
+        if (depth == stack.length)
+            stack = Arrays.copyOf(stack, depth * 2);
+        stack[depth++] = entry;
+    }
+
+    private void reset() {
+        Arrays.fill(stack, 0, depth, null);
+        depth = 0;
+        links = 0;
+        region.clear();
+    }
+
+    private static boolean isDots(CharSequence name, int begin, int end) {
+        if (end - begin != 1 && end - begin != 2) return false;
+        for (int i = begin; i < end; i++) {
+            if (name.charAt(i) != '.') return false;
+        }
+        return true;
+    }
+
+    private static int componentEnd(CharSequence name, int begin, int length) {
+        while (begin < length && !isSeparator(name.charAt(begin))) begin++;
+        return begin;
+    }
+
+    private static int skipSeparators(CharSequence name, int begin, int length) {
+        while (begin < length && isSeparator(name.charAt(begin))) begin++;
+        return begin;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '/' || c == '\\';
+    }
+}
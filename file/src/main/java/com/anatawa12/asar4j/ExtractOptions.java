@@ -0,0 +1,84 @@
+package com.anatawa12.asar4j;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * The options for {@link AsarFile#extractTo(java.nio.file.Path, ExtractOptions)}.
+ */
+public final class ExtractOptions {
+    Executor executor;
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    Predicate<? super AsarEntry> filter = entry -> true;
+    boolean replaceExisting;
+
+    /**
+     * Creates options with default values.
+     * By default, all entries are extracted on the threads as many as available processors
+     * and existing files are not replaced.
+     */
+    public ExtractOptions() {
+    }
+
+    /**
+     * Sets the executor to copy contents of files on.
+     * If null, a thread pool with {@link #parallelism(int)} threads is created for each extraction.
+     *
+     * @param executor the executor or null
+     * @return this
+     */
+    public ExtractOptions executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads to copy contents of files if no executor is set.
+     * If 1, files are copied on the thread called extractTo.
+     *
+     * @param parallelism the number of threads.
+     * @return this
+     */
+    public ExtractOptions parallelism(int parallelism) {
+        if (parallelism < 1) throw new IllegalArgumentException("parallelism must be positive");
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Sets the filter of the entries to be extracted.
+     * The directories required by extracted entries are created even if the filter rejects them.
+     *
+     * @param filter the filter
+     * @return this
+     */
+    public ExtractOptions filter(Predicate<? super AsarEntry> filter) {
+        this.filter = Objects.requireNonNull(filter, "filter");
+        return this;
+    }
+
+    /**
+     * Sets the filter of the entries to be extracted with a glob pattern.
+     * The pattern is matched with the name of entries without the leading slash
+     * like {@code directory/*.txt}. The syntax is the same as {@link AsarFile#find(String)}.
+     *
+     * @param glob the glob pattern
+     * @return this
+     */
+    public ExtractOptions glob(String glob) {
+        return filter(AsarGlob.compile(glob)::matches);
+    }
+
+    /**
+     * Sets whether existing files are replaced.
+     * If false, extraction fails with {@link java.nio.file.FileAlreadyExistsException} for existing files.
+     *
+     * @param replaceExisting true if existing files should be replaced.
+     * @return this
+     */
+    public ExtractOptions replaceExisting(boolean replaceExisting) {
+        this.replaceExisting = replaceExisting;
+        return this;
+    }
+}
@@ -2,14 +2,39 @@ package com.anatawa12.asar4j;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
 
+// reads json on UTF-8 bytes directly.
 final class JsonReader {
-    final Reader reader;
-    int cur = -2;
+    private final byte[] bytes;
+    private final int end;
+    // the index of next byte
+    private int pos;
 
-    JsonReader(Reader reader) {
-        this.reader = reader;
+    JsonReader(byte[] bytes) {
+        this(bytes, 0);
+    }
+
+    // position is the index of the first byte to be read.
+    JsonReader(byte[] bytes, int position) {
+        this.bytes = bytes;
+        this.end = bytes.length;
+        this.pos = position;
+    }
+
+    static byte[][] keys(String... keys) {
+        byte[][] result = new byte[keys.length][];
+        for (int i = 0; i < keys.length; i++)
+            result[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+        return result;
+    }
+
+    // the index of the current byte in the json.
+    // call cur() before this to skip whitespaces.
+    int position() {
+        return pos;
     }
 
     void read(char c) throws IOException {
@@ -18,46 +43,37 @@ final class JsonReader {
             throw new AsarException("Malformed json: expected '" + c + "' but was '" + read + '\"');
     }
 
-    void readOpt(char c) throws IOException {
+    void readOpt(char c) {
         if (cur() == c)
-            cur = -2;
+            pos++;
     }
 
     // get current char skipping whitespaces
-    int cur() throws IOException {
-        if (cur != -2) return cur;
-        while (true) {
-            cur = reader.read();
-            if (cur == '\u0020') continue;
-            if (cur == '\r') continue;
-            if (cur == '\n') continue;
-            if (cur == '\u0009') continue;
-            return cur;
+    int cur() {
+        while (pos < end) {
+            switch (bytes[pos]) {
+                case ' ':
+                case '\r':
+                case '\n':
+                case '\u0009':
+                    pos++;
+                    continue;
+                default:
+                    return bytes[pos] & 0xFF;
+            }
         }
+        return -1;
     }
 
     private char read() throws IOException {
         if (cur() == -1)
             throw new EOFException();
-        char c = (char) cur;
-        cur = -2;
-        return c;
+        return (char) (bytes[pos++] & 0xFF);
     }
 
-    private char readChar() throws IOException {
-        if (cur == -2) cur = reader.read();
-        if (cur == -1) throw new EOFException();
-        char c = (char) cur;
-        cur = -2;
-        return c;
-    }
-
-    private int readCharOpt() throws IOException {
-        if (cur == -2) cur = reader.read();
-        if (cur == -1) return -1;
-        char c = (char) cur;
-        cur = -2;
-        return c;
+    private int readByte() throws IOException {
+        if (pos == end) throw new EOFException();
+        return bytes[pos++] & 0xFF;
     }
 
     public String readKey() throws IOException {
@@ -66,52 +82,116 @@ final class JsonReader {
         return key;
     }
 
-    public String readString() throws IOException {
-        StringBuilder builder = new StringBuilder();
+    /**
+     * reads a key and finds the key from keys without creating string.
+     *
+     * @return the index of key in keys or -1 if not found.
+     */
+    public int readKey(byte[][] keys) throws IOException {
         read('"');
-        char c;
+        int begin = pos;
+        int index = -1;
         while (true) {
-            c = readChar();
+            int c = readByte();
             if (c == '"') break;
-            if (c != '\\') {
-                builder.append(c);
-            } else {
-                switch (c = readChar()) {
-                    case '"':
-                        builder.append('"');
-                        break;
-                    case '\\':
-                        builder.append('\\');
-                        break;
-                    case '/':
-                        builder.append('/');
-                        break;
-                    case 'b':
-                        builder.append('\b');
-                        break;
-                    case 'f':
-                        builder.append('\f');
-                        break;
-                    case 'n':
-                        builder.append('\n');
-                        break;
-                    case 'r':
-                        builder.append('\r');
-                        break;
-                    case 't':
-                        builder.append('\t');
-                        break;
-                    case 'u':
-                        builder.append(fourHex());
-                        break;
-                    default:
-                        throw new AsarException("Illegal escape sequence:" + c);
+            if (c == '\\') {
+                // escaped key: compare as string
+                pos = begin - 1;
+                String key = readString();
+                for (int i = 0; i < keys.length; i++) {
+                    if (key.equals(new String(keys[i], StandardCharsets.UTF_8)))
+                        index = i;
                 }
+                read(':');
+                return index;
+            }
+        }
+        int length = pos - 1 - begin;
+        keys:
+        for (int i = 0; i < keys.length; i++) {
+            byte[] key = keys[i];
+            if (key.length != length) continue;
+            for (int j = 0; j < length; j++) {
+                if (bytes[begin + j] != key[j]) continue keys;
             }
+            index = i;
+            break;
+        }
+        read(':');
+        return index;
+    }
+
+    public String readString() throws IOException {
+        read('"');
+        int begin = pos;
+        // fast path: ascii without escape
+        while (true) {
+            int c = readByte();
+            if (c == '"')
+                return new String(bytes, begin, pos - 1 - begin, StandardCharsets.ISO_8859_1);
+            if (c == '\\' || c >= 0x80) break;
         }
+        pos = begin;
+        return readStringSlow();
+    }
+
+    private String readStringSlow() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int segment = pos;
+        int c;
+        while (true) {
+            c = readByte();
+            if (c == '"') break;
+            if (c != '\\') continue;
+            appendUtf8(builder, segment, pos - 1);
+            switch (c = readByte()) {
+                case '"':
+                    builder.append('"');
+                    break;
+                case '\\':
+                    builder.append('\\');
+                    break;
+                case '/':
+                    builder.append('/');
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    builder.append(fourHex());
+                    break;
+                default:
+                    throw new AsarException("Illegal escape sequence:" + (char) c);
+            }
+            segment = pos;
+        }
+        appendUtf8(builder, segment, pos - 1);
         return builder.toString();
     }
 
+    private void appendUtf8(StringBuilder builder, int begin, int end) throws AsarException {
+        if (begin == end) return;
+        try {
+            // newDecoder reports malformed input
+            builder.append(StandardCharsets.UTF_8.newDecoder()
+                    .decode(ByteBuffer.wrap(bytes, begin, end - begin)));
+        } catch (CharacterCodingException e) {
+            throw new AsarException("Malformed json: invalid UTF-8", e);
+        }
+    }
+
     private char fourHex() throws IOException {
         return (char) (hex() << 12
                 | hex() << 8
@@ -120,16 +200,18 @@ final class JsonReader {
     }
 
     private int hex() throws IOException {
-        char c = readChar();
+        int c = readByte();
         if ('0' <= c && c <= '9') return c - '0';
         if ('A' <= c && c <= 'F') return c - 'A' + 10;
         if ('a' <= c && c <= 'f') return c - 'a' + 10;
-        throw new AsarException("Illegal hex:" + c);
+        throw new AsarException("Illegal hex:" + (char) c);
     }
 
-    private String readToken() throws IOException {
+    // reads token and returns the index of the first byte of the token.
+    // the token is between returned value and pos.
+    private int readToken() throws IOException {
         if (cur() == '"') throw new AsarException("token expected but was string");
-        StringBuilder builder = new StringBuilder();
+        int begin = pos;
         int c = read();
         if (!('0' <= c && c <= '9'
                 || 'a' <= c && c <= 'z'
@@ -137,14 +219,11 @@ final class JsonReader {
                 || c == '.'
                 || c == '-'))
             throw new AsarException("Unexpected Character: '" + (char) c + '\'');
-        builder.append((char) c);
 
         loop:
-        while (true) {
-            c = readCharOpt();
-            assert cur < 0;
+        while (pos < end) {
+            c = bytes[pos] & 0xFF;
             switch (c) {
-                case -1:
                 case ',':
                 case ':':
                 case '{':
@@ -153,13 +232,10 @@ final class JsonReader {
                 case ']':
                 case '-':
                 case '"':
-                    cur = c;
-                    break loop;
                 case ' ':
                 case '\r':
                 case '\n':
                 case '\u0009':
-                    cur = -2;
                     break loop;
             }
             if (!('0' <= c && c <= '9'
@@ -167,35 +243,78 @@ final class JsonReader {
                     || 'A' <= c && c <= 'Z'
                     || c == '.'))
                 throw new AsarException("Unexpected Character: '" + (char) c + '\'');
-            builder.append((char) c);
+            pos++;
         }
-        return builder.toString();
+        return begin;
     }
 
-    public boolean readBoolean() throws IOException {
-        String token = readToken();
-        switch (token) {
-            case "true":
-                return true;
-            case "false":
-                return false;
-            default:
-                throw new AsarException("boolean expected but was " + token);
+    private boolean tokenEquals(int begin, String expected) {
+        if (pos - begin != expected.length()) return false;
+        for (int i = 0; i < expected.length(); i++) {
+            if (bytes[begin + i] != expected.charAt(i)) return false;
         }
+        return true;
+    }
+
+    private String tokenString(int begin) {
+        return new String(bytes, begin, pos - begin, StandardCharsets.ISO_8859_1);
+    }
+
+    public boolean readBoolean() throws IOException {
+        int begin = readToken();
+        if (tokenEquals(begin, "true")) return true;
+        if (tokenEquals(begin, "false")) return false;
+        throw new AsarException("boolean expected but was " + tokenString(begin));
     }
 
     public double readNumber() throws IOException {
+        int begin = readToken();
+        // fast path: integer
+        long value = parseDigits(bytes[begin] == '-' ? begin + 1 : begin, pos);
+        if (value != -1)
+            return bytes[begin] == '-' ? -value : value;
         try {
-            return Double.parseDouble(readToken());
+            return Double.parseDouble(tokenString(begin));
         } catch (NumberFormatException e) {
             throw new AsarException("invalid number", e);
         }
     }
 
+    /**
+     * reads a string contains integer like {@code "100"}.
+     *
+     * @throws NumberFormatException if the string is not a integer.
+     */
+    public long readLongString() throws IOException {
+        read('"');
+        int begin = pos;
+        while (pos < end && '0' <= bytes[pos] && bytes[pos] <= '9') pos++;
+        if (pos < end && bytes[pos] == '"') {
+            long value = parseDigits(begin, pos);
+            pos++;
+            if (value != -1) return value;
+        }
+        pos = begin - 1;
+        return Long.parseLong(readString());
+    }
+
+    // parses decimal digits. returns -1 if not digits only or may overflow.
+    private long parseDigits(int begin, int end) {
+        // 18 digits never overflows
+        if (begin == end || end - begin > 18) return -1;
+        long value = 0;
+        for (int i = begin; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || 9 < digit) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
     public void skipValue() throws IOException {
         switch (cur()) {
             case '"':
-                readString();
+                skipString();
                 break;
             case '{':
                 read();
@@ -208,14 +327,46 @@ final class JsonReader {
                     skipValue();
                     readOpt(',');
                 }
+                read(']');
+                break;
+            default:
+                readToken();
+                break;
         }
     }
 
     public void skipObjectBodyRemain() throws IOException {
         while (cur() != '}') {
-            readKey();
+            skipString();
+            read(':');
             skipValue();
             readOpt(',');
         }
     }
+
+    // same as readString but doesn't build string
+    private void skipString() throws IOException {
+        read('"');
+        int c;
+        while ((c = readByte()) != '"') {
+            if (c == '\\') {
+                switch (c = readByte()) {
+                    case '"':
+                    case '\\':
+                    case '/':
+                    case 'b':
+                    case 'f':
+                    case 'n':
+                    case 'r':
+                    case 't':
+                        break;
+                    case 'u':
+                        fourHex();
+                        break;
+                    default:
+                        throw new AsarException("Illegal escape sequence:" + (char) c);
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,162 @@
+package com.anatawa12.asar4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// the index of entry names for AsarFile.find, listPrefix and byExtension.
+// entries are sorted by name so entries with the same prefix are in a range.
+final class NameIndex {
+    private final AsarEntry[] entries;
+    private final String[] names;
+    // the sorted indices of entries for each extension without '.'
+    private final Map<String, int[]> extensions;
+
+    NameIndex(Stream<? extends AsarEntry> stream) {
+        AsarEntry[] unsorted = stream.toArray(AsarEntry[]::new);
+        // getName computes the name so compute once before sorting
+        String[] unsortedNames = new String[unsorted.length];
+        for (int i = 0; i < unsorted.length; i++)
+            unsortedNames[i] = unsorted[i].getName();
+        int[] order = sortedIndices(unsortedNames);
+        entries = new AsarEntry[unsorted.length];
+        names = new String[unsorted.length];
+        for (int i = 0; i < order.length; i++) {
+            entries[i] = unsorted[order[i]];
+            names[i] = unsortedNames[order[i]];
+        }
+
+        // counts first to allocate exact size arrays
+        Map<String, int[]> counts = new HashMap<>();
+        for (String name : names) {
+            String extension = extension(name);
+            if (extension != null) counts.computeIfAbsent(extension, k -> new int[1])[0]++;
+        }
+        extensions = new HashMap<>(counts.size() * 4 / 3 + 1);
+        for (Map.Entry<String, int[]> entry : counts.entrySet())
+            extensions.put(entry.getKey(), new int[entry.getValue()[0]]);
+        // reuse counts as the next position
+        for (int[] count : counts.values())
+            count[0] = 0;
+        for (int i = 0; i < names.length; i++) {
+            String extension = extension(names[i]);
+            if (extension == null) continue;
+            int[] count = counts.get(extension);
+            extensions.get(extension)[count[0]++] = i;
+        }
+    }
+
+    // the extension of the basename or null. dot files like ".gitignore" have no extension.
+    static String extension(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot == -1 || dot == name.length() - 1) return null;
+        int slash = name.lastIndexOf('/');
+        if (dot <= slash + 1) return null;
+        return name.substring(dot + 1);
+    }
+
+    // returns the indices of names in the ascending order. the order of the same names are kept.
+    static int[] sortedIndices(String[] names) {
+        int length = names.length;
+        int[] indices = new int[length];
+        for (int i = 0; i < length; i++)
+            indices[i] = i;
+        // bottom-up merge sort without boxing like OffsetOrder
+        int[] work = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                int mid = Math.min(low + width, length);
+                int high = Math.min(low + 2 * width, length);
+                int i = low;
+                int j = mid;
+                int k = low;
+                while (i < mid && j < high)
+                    work[k++] = names[indices[j]].compareTo(names[indices[i]]) < 0 ? indices[j++] : indices[i++];
+                while (i < mid) work[k++] = indices[i++];
+                while (j < high) work[k++] = indices[j++];
+            }
+            int[] swap = indices;
+            indices = work;
+            work = swap;
+        }
+        return indices;
+    }
+
+    Stream<AsarEntry> prefix(String prefix) {
+        return prefixIndices(prefix).mapToObj(i -> entries[i]);
+    }
+
+    Stream<AsarEntry> extension(String extension, String prefix) {
+        return extensionIndices(extension, prefix).mapToObj(i -> entries[i]);
+    }
+
+    // the indices of entries and names
+    private IntStream prefixIndices(String prefix) {
+        int begin = lowerBound(prefix);
+        int end = upperBound(prefix, begin);
+        return IntStream.range(begin, end);
+    }
+
+    private IntStream extensionIndices(String extension, String prefix) {
+        int[] indices = extensions.get(extension);
+        if (indices == null) return IntStream.empty();
+        int begin = lowerBound(prefix);
+        int end = upperBound(prefix, begin);
+        // indices are sorted so the range of prefix is also a range in indices
+        int from = Arrays.binarySearch(indices, begin);
+        if (from < 0) from = -from - 1;
+        int to = Arrays.binarySearch(indices, end);
+        if (to < 0) to = -to - 1;
+        return Arrays.stream(indices, from, to);
+    }
+
+    Stream<AsarEntry> glob(String glob) {
+        // the literal part of the glob before the first special character limits the range.
+        int special = 0;
+        while (special < glob.length() && "*?[{\\".indexOf(glob.charAt(special)) == -1)
+            special++;
+        if (special == glob.length()) {
+            // no special characters
+            return prefixIndices('/' + glob).filter(i -> names[i].length() == glob.length() + 1)
+                    .mapToObj(i -> entries[i]);
+        }
+        String prefix = '/' + glob.substring(0, glob.lastIndexOf('/', special) + 1);
+        // "*.ext" at the end of the glob can be found with extension index
+        String extension = null;
+        int lastSlash = glob.lastIndexOf('/');
+        if (glob.startsWith("*.", lastSlash + 1)) {
+            String candidate = glob.substring(lastSlash + 3);
+            if (!candidate.isEmpty() && candidate.chars().noneMatch(c -> "*?[{\\./".indexOf(c) != -1))
+                extension = candidate;
+        }
+        AsarGlob matcher = AsarGlob.compile(glob);
+        IntStream candidates = extension != null ? extensionIndices(extension, prefix) : prefixIndices(prefix);
+        return candidates.filter(i -> matcher.matchesName(names[i])).mapToObj(i -> entries[i]);
+    }
+
+    // the index of the first name not less than prefix
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].compareTo(prefix) < 0) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    // the index of the first name after begin not starts with prefix
+    private int upperBound(String prefix, int begin) {
+        int low = begin;
+        int high = names.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (names[mid].startsWith(prefix)) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,19 @@
+package com.anatawa12.asar4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// deduplicates names of entries while reading a header.
+// the names are also shared with other asar files via String.intern.
+final class NamePool {
+    private final Map<String, String> names = new HashMap<>();
+
+    String get(String name) {
+        String pooled = names.get(name);
+        if (pooled == null) {
+            pooled = name.intern();
+            names.put(pooled, pooled);
+        }
+        return pooled;
+    }
+}
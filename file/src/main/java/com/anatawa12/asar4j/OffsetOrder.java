@@ -0,0 +1,108 @@
+package com.anatawa12.asar4j;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.stream.Stream;
+
+// the file entries in the ascending order of offset for AsarFile.filesByOffset.
+// unpacked entries are placed at the end.
+final class OffsetOrder implements Iterable<AsarEntry> {
+    // sorted entries. null in compact mode.
+    private final AsarEntry[] entries;
+    // sorted indices of table in compact mode.
+    private final int[] indices;
+    private final AsarEntryTable table;
+    private final AsarFile owner;
+
+    private OffsetOrder(AsarEntry[] entries, int[] indices, AsarEntryTable table, AsarFile owner) {
+        this.entries = entries;
+        this.indices = indices;
+        this.table = table;
+        this.owner = owner;
+    }
+
+    static OffsetOrder of(Stream<? extends AsarEntry> stream) {
+        AsarEntry[] files = stream.filter(entry -> entry.getType() == AsarEntryType.FILE)
+                .toArray(AsarEntry[]::new);
+        long[] keys = new long[files.length];
+        for (int i = 0; i < files.length; i++)
+            keys[i] = files[i].isUnpacked() ? Long.MAX_VALUE : files[i].offset;
+        int[] order = sortedIndices(keys);
+        AsarEntry[] sorted = new AsarEntry[files.length];
+        for (int i = 0; i < order.length; i++)
+            sorted[i] = files[order[i]];
+        return new OffsetOrder(sorted, null, null, null);
+    }
+
+    static OffsetOrder of(AsarEntryTable table, AsarFile owner) {
+        int count = 0;
+        for (int i = 0; i < table.size(); i++) {
+            if (table.type(i) == AsarEntryType.FILE) count++;
+        }
+        int[] files = new int[count];
+        long[] keys = new long[count];
+        for (int i = 0, j = 0; i < table.size(); i++) {
+            if (table.type(i) != AsarEntryType.FILE) continue;
+            files[j] = i;
+            keys[j++] = table.isUnpacked(i) ? Long.MAX_VALUE : table.offset(i);
+        }
+        int[] order = sortedIndices(keys);
+        for (int i = 0; i < order.length; i++)
+            order[i] = files[order[i]];
+        return new OffsetOrder(null, order, table, owner);
+    }
+
+    // returns the indices of keys in the ascending order of keys. the order of the same keys are kept.
+    static int[] sortedIndices(long[] keys) {
+        int length = keys.length;
+        int[] indices = new int[length];
+        boolean sorted = true;
+        for (int i = 0; i < length; i++) {
+            indices[i] = i;
+            if (i != 0 && keys[i - 1] > keys[i]) sorted = false;
+        }
+        if (sorted) return indices;
+        // bottom-up merge sort without boxing
+        int[] work = new int[length];
+        for (int width = 1; width < length; width *= 2) {
+            for (int low = 0; low < length; low += 2 * width) {
+                int mid = Math.min(low + width, length);
+                int high = Math.min(low + 2 * width, length);
+                int i = low;
+                int j = mid;
+                int k = low;
+                while (i < mid && j < high)
+                    work[k++] = keys[indices[j]] < keys[indices[i]] ? indices[j++] : indices[i++];
+                while (i < mid) work[k++] = indices[i++];
+                while (j < high) work[k++] = indices[j++];
+            }
+            int[] swap = indices;
+            indices = work;
+            work = swap;
+        }
+        return indices;
+    }
+
+    int size() {
+        return entries != null ? entries.length : indices.length;
+    }
+
+    @Override
+    public Iterator<AsarEntry> iterator() {
+        return new Iterator<AsarEntry>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public AsarEntry next() {
+                if (index >= size()) throw new NoSuchElementException();
+                if (entries != null) return entries[index++];
+                return new AsarTableEntry(table, indices[index++], owner);
+            }
+        };
+    }
+}
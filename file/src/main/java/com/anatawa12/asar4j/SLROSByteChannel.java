@@ -1,19 +1,32 @@
 package com.anatawa12.asar4j;
 
+import com.anatawa12.asar4j.internal.AsarEvents;
+
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.SeekableByteChannel;
+import java.util.concurrent.locks.Lock;
 
 // Size Limited Read Only Seekable
+// if the channel is FileChannel, reads with positional read without lock.
+// if not, the position of channel is shared so reads with the lock.
 class SLROSByteChannel implements SeekableByteChannel {
-    private final Object lock;
+    private final Lock lock;
     private SeekableByteChannel channel;
     private final long offset;
     private final long size;
     private volatile long position = 0;
+    // the asar file and entry for statistics and events. null if not counted.
+    private final AsarFile owner;
+    private final AsarEntry entry;
+
+    SLROSByteChannel(SeekableByteChannel channel, long offset, long size, Lock lock) {
+        this(channel, offset, size, lock, null, null);
+    }
 
-    SLROSByteChannel(SeekableByteChannel channel, long offset, long size, Object lock) {
+    SLROSByteChannel(SeekableByteChannel channel, long offset, long size, Lock lock, AsarFile owner, AsarEntry entry) {
         if (offset < 0) throw new IllegalArgumentException("negative offset");
         if (size < 0) throw new IllegalArgumentException("negative size");
         if (offset + size < 0) throw new IllegalArgumentException("size + offset overflow");
@@ -21,34 +34,53 @@ class SLROSByteChannel implements SeekableByteChannel {
         this.offset = offset;
         this.size = size;
         this.lock = lock;
+        this.owner = owner;
+        this.entry = entry;
     }
 
     @Override
     public int read(ByteBuffer dst) throws IOException {
-        synchronized (lock) {
-            checkClose();
-            if (position >= size) return -1;
-            channel.position(offset + position);
-            int read;
-            if (dst.remaining() <= limit()) {
-                read = channel.read(dst);
+        SeekableByteChannel channel = this.channel;
+        if (channel == null) throw new IllegalStateException("closed");
+        long position = this.position;
+        int read = read(channel, lock, owner, entry, offset, size, position, dst);
+        if (read > 0) this.position = position + read;
+        return read;
+    }
+
+    // reads the region of the channel from the position without state.
+    // returns -1 if the position is at the end of the region.
+    // the read is counted in statistics of owner if not null. entry can be null for reads of multiple entries.
+    static int read(SeekableByteChannel channel, Lock lock, AsarFile owner, AsarEntry entry,
+                    long offset, long size, long position, ByteBuffer dst) throws IOException {
+        if (position >= size) return -1;
+        int dstLimit = dst.limit();
+        if (dst.remaining() > size - position)
+            dst.limit(dst.position() + (int) (size - position));
+        AsarStatistics statistics = owner == null ? null : owner.getStatistics();
+        Object event = owner == null ? null : AsarEvents.beginRead();
+        long start = System.nanoTime();
+        int read;
+        try {
+            if (channel instanceof FileChannel) {
+                read = ((FileChannel) channel).read(dst, offset + position);
             } else {
-                int dstLimit = dst.limit();
-                dst.limit(dst.position() + (int) limit());
-                read = channel.read(dst);
-                dst.limit(dstLimit);
-            }
-            assert read <= limit();
-            if (read == -1) {
-                return -1;
+                lock.lock();
+                if (statistics != null) statistics.lockWait(System.nanoTime() - start);
+                try {
+                    channel.position(offset + position);
+                    read = channel.read(dst);
+                } finally {
+                    lock.unlock();
+                }
             }
-            position += read;
-            return read;
+        } finally {
+            dst.limit(dstLimit);
         }
-    }
-
-    private long limit() {
-        return size - position;
+        if (statistics != null) statistics.read(read, System.nanoTime() - start);
+        if (event != null)
+            AsarEvents.endRead(event, owner.archive(), entry, offset + position, read);
+        return read;
     }
 
     @Override
@@ -61,10 +93,6 @@ class SLROSByteChannel implements SeekableByteChannel {
         channel = null;
     }
 
-    private void checkClose() {
-        if (!isOpen()) throw new IllegalStateException("closed");
-    }
-
     @Override
     public long position() {
         return position;
@@ -72,11 +100,9 @@ class SLROSByteChannel implements SeekableByteChannel {
 
     @Override
     public SeekableByteChannel position(long newPosition) {
-        synchronized (lock) {
-            if (newPosition < 0) throw new IllegalArgumentException("negative position");
-            position = newPosition;
-            return this;
-        }
+        if (newPosition < 0) throw new IllegalArgumentException("negative position");
+        position = newPosition;
+        return this;
     }
 
     @Override
@@ -0,0 +1,63 @@
+package com.anatawa12.asar4j;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// the spliterator walks the directory tree and splits by handing subtrees.
+// used for lazy mode so directories are read on the thread walks the directory.
+class SubtreeSpliterator implements Spliterator<AsarEntry> {
+    // directories whose children are already in pending. returned before pending.
+    private final ArrayDeque<AsarEntry> expanded = new ArrayDeque<>();
+    // the roots of subtrees not visited yet.
+    private final ArrayDeque<AsarEntry> pending;
+
+    SubtreeSpliterator(AsarEntry root) {
+        pending = new ArrayDeque<>();
+        pending.add(root);
+    }
+
+    private SubtreeSpliterator(ArrayDeque<AsarEntry> pending) {
+        this.pending = pending;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AsarEntry> action) {
+        AsarEntry entry = expanded.poll();
+        if (entry == null) {
+            entry = pending.poll();
+            if (entry == null) return false;
+            if (entry.getType() == AsarEntryType.DIRECTORY)
+                pending.addAll(entry.getChildren());
+        }
+        action.accept(entry);
+        return true;
+    }
+
+    @Override
+    public Spliterator<AsarEntry> trySplit() {
+        // descend until there are two or more subtrees
+        while (pending.size() == 1 && pending.peek().getType() == AsarEntryType.DIRECTORY) {
+            AsarEntry directory = pending.poll();
+            expanded.add(directory);
+            pending.addAll(directory.getChildren());
+        }
+        int half = pending.size() / 2;
+        if (half == 0) return null;
+        ArrayDeque<AsarEntry> prefix = new ArrayDeque<>(half);
+        for (int i = 0; i < half; i++)
+            prefix.add(pending.poll());
+        return new SubtreeSpliterator(prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+        // the size of subtrees is unknown
+        return expanded.isEmpty() && pending.isEmpty() ? 0 : Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | NONNULL | IMMUTABLE;
+    }
+}
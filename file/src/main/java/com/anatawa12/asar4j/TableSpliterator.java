@@ -0,0 +1,53 @@
+package com.anatawa12.asar4j;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+// the spliterator over index range of AsarEntryTable
+class TableSpliterator implements Spliterator<AsarEntry> {
+    private final AsarEntryTable table;
+    private final AsarFile owner;
+    private int index;
+    private final int end;
+
+    TableSpliterator(AsarEntryTable table, AsarFile owner, int index, int end) {
+        this.table = table;
+        this.owner = owner;
+        this.index = index;
+        this.end = end;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super AsarEntry> action) {
+        if (index >= end) return false;
+        action.accept(new AsarTableEntry(table, index++, owner));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super AsarEntry> action) {
+        int end = this.end;
+        for (int i = index; i < end; i++)
+            action.accept(new AsarTableEntry(table, i, owner));
+        index = end;
+    }
+
+    @Override
+    public Spliterator<AsarEntry> trySplit() {
+        int mid = (index + end) >>> 1;
+        if (mid <= index) return null;
+        TableSpliterator prefix = new TableSpliterator(table, owner, index, mid);
+        index = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,142 @@
+package com.anatawa12.asar4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.security.MessageDigest;
+
+// the channel verifies each block of the contents with the integrity before returning it.
+// the whole of the block is read and verified when the block is first read.
+class VerifyingByteChannel implements SeekableByteChannel {
+    private final SeekableByteChannel channel;
+    private final AsarIntegrity integrity;
+    private final String name;
+    private final long size;
+    private MessageDigest digest;
+    private long position;
+    // the verified block. the limit is the length of the block.
+    private ByteBuffer block;
+    private long blockIndex = -1;
+
+    // channel must be the channel for whole of the contents
+    VerifyingByteChannel(SeekableByteChannel channel, AsarIntegrity integrity, String name) throws IOException {
+        this.channel = channel;
+        this.integrity = integrity;
+        this.name = name;
+        this.size = channel.size();
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        if (!isOpen()) throw new IllegalStateException("closed");
+        if (position >= size) return -1;
+        long index = position / integrity.getBlockSize();
+        if (index != blockIndex) load(index);
+        ByteBuffer src = block.duplicate();
+        src.position((int) (position - index * integrity.getBlockSize()));
+        int read = Math.min(src.remaining(), dst.remaining());
+        src.limit(src.position() + read);
+        dst.put(src);
+        position += read;
+        return read;
+    }
+
+    private void load(long index) throws IOException {
+        blockIndex = -1;
+        long begin = index * integrity.getBlockSize();
+        int length = (int) Math.min(integrity.getBlockSize(), size - begin);
+        // the last block may be shorter so allocate for the full block
+        if (block == null) block = ByteBuffer.allocate((int) Math.min(integrity.getBlockSize(), size));
+        block.clear();
+        block.limit(length);
+        channel.position(begin);
+        while (block.hasRemaining()) {
+            if (channel.read(block) == -1)
+                throw new AsarException("the entry is out of the asar file: " + name);
+        }
+        block.flip();
+        if (digest == null) digest = integrity.newDigest();
+        digest.update(block.duplicate());
+        if (index > Integer.MAX_VALUE || !integrity.blockMatches((int) index, digest.digest()))
+            throw new AsarException("integrity check failed: block " + index + " of " + name);
+        blockIndex = index;
+    }
+
+    // verifies whole of the contents and blocks
+    static void verify(SeekableByteChannel channel, AsarIntegrity integrity, String name) throws IOException {
+        long size = channel.size();
+        int blockSize = integrity.getBlockSize();
+        long blockCount = (size + blockSize - 1) / blockSize;
+        // electron writes the hash of empty block for empty file
+        if (blockCount != integrity.getBlockCount() && !(size == 0 && integrity.getBlockCount() == 1))
+            throw new AsarException("integrity check failed: block count mismatch of " + name);
+        MessageDigest whole = integrity.newDigest();
+        MessageDigest block = integrity.newDigest();
+        ByteBuffer buffer = BufferPool.acquire();
+        try {
+            long read = 0;
+            int index = 0;
+            while (read < size) {
+                buffer.clear();
+                // don't read over the block
+                buffer.limit((int) Math.min(buffer.capacity(), blockSize - read % blockSize));
+                if (channel.read(buffer) == -1)
+                    throw new AsarException("the entry is out of the asar file: " + name);
+                buffer.flip();
+                read += buffer.remaining();
+                whole.update(buffer.duplicate());
+                block.update(buffer);
+                if (read % blockSize == 0 || read == size) {
+                    if (!integrity.blockMatches(index, block.digest()))
+                        throw new AsarException("integrity check failed: block " + index + " of " + name);
+                    index++;
+                }
+            }
+        } finally {
+            BufferPool.release(buffer);
+        }
+        if (!integrity.hashMatches(whole.digest()))
+            throw new AsarException("integrity check failed: " + name);
+    }
+
+    @Override
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        block = null;
+    }
+
+    @Override
+    public long position() {
+        return position;
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) {
+        if (newPosition < 0) throw new IllegalArgumentException("negative position");
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    // modification operations
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+}
@@ -0,0 +1,128 @@
+package com.anatawa12.asar4j;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The publisher of the contents of an asar file entry in fixed-size chunks.
+ * Chunks are read with {@link AsarFile#readAsync(AsarEntry, long, ByteBuffer)} only when requested
+ * by the subscriber so no thread is blocked for backpressure.
+ * Each subscriber receives the contents from the beginning.
+ * This class is only available on Java 9 or later.
+ */
+public final class EntryPublisher implements Flow.Publisher<ByteBuffer> {
+    private final AsarFile file;
+    private final AsarEntry entry;
+    private final int chunkSize;
+
+    /**
+     * Creates a publisher with 64 KiB chunks.
+     *
+     * @param file  the asar file
+     * @param entry the asar file entry
+     */
+    public EntryPublisher(AsarFile file, AsarEntry entry) {
+        this(file, entry, 64 * 1024);
+    }
+
+    /**
+     * Creates a publisher.
+     *
+     * @param file      the asar file
+     * @param entry     the asar file entry
+     * @param chunkSize the size of chunks. the last chunk may be smaller.
+     */
+    public EntryPublisher(AsarFile file, AsarEntry entry, int chunkSize) {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive");
+        this.file = Objects.requireNonNull(file, "file");
+        this.entry = Objects.requireNonNull(entry, "entry");
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        EntrySubscription subscription = new EntrySubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        // empty entry completes without request
+        subscription.drain();
+    }
+
+    private final class EntrySubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // the drain loop is run by only one thread at once
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean done;
+        // set by completion of read
+        private volatile ByteBuffer ready;
+        private volatile Throwable error;
+        // accessed only in drain loop
+        private long position;
+        private boolean reading;
+
+        EntrySubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            done = true;
+        }
+
+        void drain() {
+            if (wip.getAndIncrement() != 0) return;
+            int missed = 1;
+            do {
+                while (!done) {
+                    Throwable error = this.error;
+                    if (error != null) {
+                        done = true;
+                        subscriber.onError(error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                        break;
+                    }
+                    ByteBuffer chunk = ready;
+                    if (chunk != null) {
+                        ready = null;
+                        reading = false;
+                        demand.decrementAndGet();
+                        subscriber.onNext(chunk);
+                        continue;
+                    }
+                    if (reading) break;
+                    long size = entry.getSize();
+                    if (position >= size) {
+                        done = true;
+                        subscriber.onComplete();
+                        break;
+                    }
+                    if (demand.get() == 0) break;
+                    int length = (int) Math.min(chunkSize, size - position);
+                    reading = true;
+                    file.readFullyAsync(entry, position, ByteBuffer.allocate(length)).whenComplete((read, e) -> {
+                        if (e != null) this.error = e;
+                        else ready = read;
+                        drain();
+                    });
+                    position += length;
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.anatawa12.asar4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsarEntryTableTest {
+    @Test
+    void read() throws IOException {
+        AsarEntryTable table = AsarEntryTable.read(new JsonReader(Utils.getFileAsBytes("header1.json")));
+        assertEquals(5, table.size());
+        assertEquals(AsarEntryType.DIRECTORY, table.type(0));
+        assertEquals(3, table.childCount(0));
+        // sorted by name
+        assertEquals("directory", table.basename(table.child(0, 0)));
+        assertEquals("files", table.basename(table.child(0, 1)));
+        assertEquals("link", table.basename(table.child(0, 2)));
+
+        int files = table.findChild(0, "files");
+        assertEquals(AsarEntryType.FILE, table.type(files));
+        assertEquals(100, table.offset(files));
+        assertEquals(100, table.bodySize(files));
+        assertFalse(table.isExecutable(files));
+        assertEquals("/files", table.path(files));
+
+        int directory = table.findChild(0, "directory");
+        int inDirLink = table.findChild(directory, "in-dir-link");
+        assertEquals(AsarEntryType.LINK, table.type(inDirLink));
+        assertEquals("../files", table.linkTarget(inDirLink));
+        assertEquals(directory, table.parent(inDirLink));
+        assertEquals("/directory/in-dir-link", table.path(inDirLink));
+
+        assertEquals(-1, table.findChild(0, "not-found"));
+        assertEquals(-1, table.findChild(directory, "files"));
+    }
+
+    @Test
+    void binary() throws IOException {
+        AsarEntryTable table = AsarEntryTable.read(new JsonReader(Utils.getFileAsBytes("header1.json")));
+        AsarEntryTable mapped = AsarEntryTable.map(table.toBinary());
+        assertEquals(table.size(), mapped.size());
+        for (int i = 0; i < table.size(); i++) {
+            assertEquals(table.path(i), mapped.path(i));
+            assertEquals(table.type(i), mapped.type(i));
+            assertEquals(table.parent(i), mapped.parent(i));
+        }
+        int directory = mapped.findChild(0, "directory");
+        assertEquals("../files", mapped.linkTarget(mapped.findChild(directory, "in-dir-link")));
+        assertEquals(100, mapped.offset(mapped.findChild(0, "files")));
+    }
+
+    @Test
+    void integrity() throws IOException {
+        AsarEntryTable table = read("{\"files\":{" +
+                "\"a\":{\"size\":1,\"offset\":\"0\",\"integrity\":{" +
+                "\"algorithm\":\"SHA256\",\"hash\":\"0a0b\",\"blockSize\":4,\"blocks\":[\"0c0d\"]}}," +
+                "\"b\":{\"size\":1,\"offset\":\"1\"}" +
+                "}}");
+        for (AsarEntryTable t : new AsarEntryTable[]{table, AsarEntryTable.map(table.toBinary())}) {
+            AsarIntegrity integrity = t.integrity(t.findChild(0, "a"));
+            assertEquals("SHA256", integrity.getAlgorithm());
+            assertEquals(4, integrity.getBlockSize());
+            assertArrayEquals(new byte[]{0x0a, 0x0b}, integrity.getHash());
+            assertEquals(1, integrity.getBlockCount());
+            assertArrayEquals(new byte[]{0x0c, 0x0d}, integrity.getBlockHash(0));
+            assertNull(t.integrity(t.findChild(0, "b")));
+        }
+    }
+
+    @Test
+    void unpackedAndDuplicated() throws IOException {
+        AsarEntryTable table = read("{\"files\":{" +
+                "\"b\":{\"files\":{\"c\":{\"size\":1,\"offset\":\"0\"}},\"unpacked\":true}," +
+                "\"a\":{\"size\":1,\"offset\":\"0\"}," +
+                "\"a\":{\"size\":2,\"offset\":\"1\",\"executable\":true}" +
+                "}}");
+        assertEquals(2, table.childCount(0));
+        int b = table.findChild(0, "b");
+        assertTrue(table.isUnpacked(b));
+        assertEquals(AsarEntryType.DIRECTORY, table.type(b));
+        assertFalse(table.isUnpacked(table.findChild(b, "c")));
+        int a = table.findChild(0, "a");
+        assertFalse(table.isUnpacked(a));
+        assertEquals(2, table.bodySize(a));
+        assertTrue(table.isExecutable(a));
+    }
+
+    private AsarEntryTable read(String json) throws IOException {
+        return AsarEntryTable.read(new JsonReader(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
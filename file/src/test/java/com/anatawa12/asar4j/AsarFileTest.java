@@ -2,18 +2,45 @@ package com.anatawa12.asar4j;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.io.ByteStreams;
+import com.sun.management.ThreadMXBean;
+import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -30,10 +57,49 @@ class AsarFileTest {
                 ByteStreams.toByteArray(file.getInputStream(file.getEntry("test.txt.1"))));
     }
 
+    @Test
+    void mapped() throws IOException {
+        Path path = Files.createTempFile(null, ".asar");
+        try {
+            Files.write(path, Utils.getFileAsBytes("test1.asar"));
+            try (AsarFile file = AsarFile.openMapped(path)) {
+                checkMapped(file);
+            }
+        } finally {
+            Files.delete(path);
+        }
+
+        // in-memory asar with non-zero position
+        byte[] bytes = Utils.getFileAsBytes("test1.asar");
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length + 3);
+        buffer.position(3);
+        buffer.put(bytes);
+        buffer.position(3);
+        try (AsarFile file = new AsarFile(buffer)) {
+            checkMapped(file);
+        }
+    }
+
+    private void checkMapped(AsarFile file) throws IOException {
+        ByteBuffer body = file.getByteBuffer(file.getEntry("test.txt"));
+        assertTrue(body.isReadOnly());
+        byte[] read = new byte[body.remaining()];
+        body.get(read);
+        assertArrayEquals("test text file\n".getBytes(StandardCharsets.UTF_8), read);
+        assertArrayEquals("test text file\n".getBytes(StandardCharsets.UTF_8),
+                ByteStreams.toByteArray(file.getInputStream(file.getEntry("test.txt.1"))));
+    }
+
+    @Test
+    void getByteBufferNotMapped() throws IOException {
+        AsarFile file = new AsarFile(Utils.getFileAsChannel("test1.asar"));
+        assertThrows(IllegalStateException.class, () -> file.getByteBuffer(file.getEntry("test.txt")));
+    }
+
     @Test
     void readEntry() throws IOException {
-        AsarEntry root = AsarFile.readEntry(new JsonReader(new StringReader(
-                Utils.getFileAsString("header1.json"))), "", null);
+        AsarEntry root = AsarFile.readEntry(new JsonReader(
+                Utils.getFileAsBytes("header1.json")), "", null);
         assertTrue(root instanceof AsarDirectoryEntry);
 
         assertEquals("/files", root.getChild("files").getName());
@@ -57,6 +123,89 @@ class AsarFileTest {
         assertEquals("files", root.getChild("link").getLinkTarget());
     }
 
+    @Test
+    void sharedNames() throws IOException {
+        AsarFile file1 = new AsarFile(Utils.getFileAsChannel("test1.asar"));
+        AsarFile file2 = new AsarFile(Utils.getFileAsChannel("test1.asar"), AsarFile.OPEN_COMPACT);
+        assertSame(file1.getEntry("test.txt").getBasename(), file2.getEntry("test.txt").getBasename());
+        assertThrows(AsarException.class, () -> AsarFile.readEntry(new JsonReader(
+                "{\"files\":{\"..\":{\"size\":0,\"offset\":\"0\"}}}".getBytes(StandardCharsets.UTF_8)),
+                "", null));
+        for (String name : new String[]{"", ".", ".."}) {
+            byte[] asar = Utils.createAsar(Collections.singletonMap(name, new byte[0]));
+            // the compact parser must reject the same names as the eager one
+            for (int mode : new int[]{0, AsarFile.OPEN_COMPACT}) {
+                assertThrows(AsarException.class, () -> new AsarFile(ByteBuffer.wrap(asar), mode));
+            }
+        }
+    }
+
+    @Test
+    void readEntryLazy() throws IOException {
+        byte[] header = Utils.getFileAsBytes("header1.json");
+        AsarEntry root = AsarFile.readEntry(new JsonReader(header), null, "", null, header, new NamePool());
+        assertTrue(root instanceof AsarLazyDirectoryEntry);
+
+        assertEquals("/files", root.getChild("files").getName());
+        assertEquals(100, root.getChild("files").getSize());
+        assertEquals(100, root.getChild("files").offset);
+
+        AsarEntry directory = root.getChild("directory");
+        assertTrue(directory instanceof AsarLazyDirectoryEntry);
+        assertEquals("/directory/in-dir-link", directory.getChild("in-dir-link").getName());
+        assertEquals("../files", directory.getChild("in-dir-link").getLinkTarget());
+
+        assertEquals("files", root.getChild("link").getLinkTarget());
+    }
+
+    @Test
+    void lazy() throws IOException {
+        AsarFile eager = new AsarFile(Utils.getFileAsChannel("test1.asar"));
+        AsarFile lazy = new AsarFile(Utils.getFileAsChannel("test1.asar"), AsarFile.OPEN_LAZY);
+
+        assertArrayEquals("test text file\n".getBytes(StandardCharsets.UTF_8),
+                ByteStreams.toByteArray(lazy.getInputStream(lazy.getEntry("test.txt.1"))));
+        assertEquals(eager.size(), lazy.size());
+        assertEquals(eager.size(), lazy.stream().count());
+    }
+
+    @Test
+    void compact() throws IOException {
+        AsarFile eager = new AsarFile(Utils.getFileAsChannel("test1.asar"));
+        AsarFile compact = new AsarFile(Utils.getFileAsChannel("test1.asar"), AsarFile.OPEN_COMPACT);
+
+        assertTrue(compact.getEntry("test.txt") instanceof AsarTableEntry);
+        assertEquals("/test.txt", compact.getEntry("test.txt.1").getName());
+        assertArrayEquals("test text file\n".getBytes(StandardCharsets.UTF_8),
+                ByteStreams.toByteArray(compact.getInputStream(compact.getEntry("test.txt.1"))));
+        assertEquals(eager.size(), compact.size());
+        assertEquals(eager.size(), compact.stream().count());
+        assertThrows(IllegalArgumentException.class, () -> new AsarFile(Utils.getFileAsChannel("test1.asar"),
+                AsarFile.OPEN_LAZY | AsarFile.OPEN_COMPACT));
+    }
+
+    @Test
+    void compactDuplicatedNames() throws IOException {
+        // the first "a" and its children are replaced by the second "a" like eager mode
+        byte[] asar = Utils.createAsar("{\"files\":{"
+                + "\"a\":{\"files\":{\"x\":{\"size\":1,\"offset\":\"0\"},\"y\":{\"size\":1,\"offset\":\"1\"}}},"
+                + "\"b\":{\"size\":1,\"offset\":\"2\"},"
+                + "\"a\":{\"files\":{\"z\":{\"size\":1,\"offset\":\"3\"}}},"
+                + "\"b\":{\"size\":1,\"offset\":\"4\"}}}", new byte[]{'0', '1', '2', '3', '4'});
+        AsarFile eager = new AsarFile(ByteBuffer.wrap(asar));
+        AsarFile compact = new AsarFile(ByteBuffer.wrap(asar), AsarFile.OPEN_COMPACT);
+
+        assertEquals(eager.size(), compact.size());
+        assertEquals(eager.stream().map(AsarEntry::getName).sorted().collect(Collectors.toList()),
+                compact.stream().map(AsarEntry::getName).sorted().collect(Collectors.toList()));
+        List<String> files = new ArrayList<>();
+        compact.filesByOffset().forEach(entry -> files.add(entry.getName()));
+        assertEquals(Arrays.asList("/a/z", "/b"), files);
+        assertNull(compact.getEntry("a/x"));
+        assertEquals("/a/z", compact.getEntry("a/z").getName());
+        assertArrayEquals(new byte[]{'4'}, compact.readAllBytes(compact.getEntry("b")));
+    }
+
     @Test
     void getEntry() throws IOException {
         AsarFile file = new AsarFile(Utils.getFileAsChannel("test1.asar"));
@@ -96,25 +245,734 @@ class AsarFileTest {
 
         // test: resolveEntry
 
-        assertSame(root, AsarFile.resolveEntry(listOf(), false, root));
-        assertSame(root, AsarFile.resolveEntry(listOf(), true, root));
+        assertSame(root, AsarFile.resolveEntry("", false, root));
+        assertSame(root, AsarFile.resolveEntry("", true, root));
+
+        assertSame(file, AsarFile.resolveEntry("file", false, root));
+        assertSame(file, AsarFile.resolveEntry("file", true, root));
+
+        assertSame(link, AsarFile.resolveEntry("link", false, root));
+        assertSame(file, AsarFile.resolveEntry("link", true, root));
+
+        assertSame(directory, AsarFile.resolveEntry("directory", false, root));
+        assertSame(directory, AsarFile.resolveEntry("directory", true, root));
+
+        assertSame(inDirLink, AsarFile.resolveEntry("directory/in-dir-link", false, root));
+        assertSame(file, AsarFile.resolveEntry("directory/in-dir-link", true, root));
+
+        assertSame(file, AsarFile.resolveEntry("//directory\\in-dir-link/", true, root));
+        assertSame(file, AsarFile.resolveEntry(new StringBuilder("directory/in-dir-link"), true, root));
+        assertNull(AsarFile.resolveEntry("directory/in-dir-link/file", true, root));
+        assertNull(AsarFile.resolveEntry("file/file", true, root));
+        assertNull(AsarFile.resolveEntry("directory/not-found", true, root));
+    }
+
+    @Test
+    void resolveEntryLinkLoop() {
+        AsarLinkEntry loop = new AsarLinkEntry("/loop", "loop");
+        AsarDirectoryEntry root = new AsarDirectoryEntry("",
+                ImmutableMap.<String, AsarEntry>builder()
+                        .put("loop", loop)
+                        .build());
+
+        assertSame(loop, AsarFile.resolveEntry("loop", false, root));
+        assertNull(AsarFile.resolveEntry("loop", true, root));
+    }
+
+    @Test
+    void getEntryCharSequence() throws IOException {
+        for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+            AsarFile file = new AsarFile(Utils.getFileAsChannel("test1.asar"), mode);
+            StringBuilder name = new StringBuilder("test.txt");
+            String expected = file.getEntry("test.txt").getName();
+            assertEquals(expected, file.getEntry(name).getName());
+            name.append(".1");
+            assertEquals(expected, file.getEntry(name).getName());
+            name.setLength(0);
+            name.append("not-found");
+            assertNull(file.getEntry(name));
+        }
+    }
+
+    @Test
+    void getEntryAllocationFree() throws IOException {
+        if (!(ManagementFactory.getThreadMXBean() instanceof ThreadMXBean)) return;
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) return;
+        AsarFile file = new AsarFile(Utils.getFileAsChannel("test1.asar"));
+        long id = Thread.currentThread().getId();
+
+        // warm up thread local
+        for (int i = 0; i < 1000; i++) file.getEntry("test.txt.1");
+        long before = threads.getThreadAllocatedBytes(id);
+        for (int i = 0; i < 10000; i++) file.getEntry("test.txt.1");
+        long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+        // getThreadAllocatedBytes itself may allocate a little
+        assertTrue(allocated < 10000, "allocated " + allocated + " bytes");
+    }
+
+    @Test
+    void extractTo() throws IOException {
+        Path path = Files.createTempFile(null, ".asar");
+        Path target = Files.createTempDirectory(null);
+        try {
+            Files.write(path, Utils.getFileAsBytes("test1.asar"));
+            try (AsarFile file = new AsarFile(path)) {
+                file.extractTo(target);
+            }
+            assertEquals("test text file\n", new String(Files.readAllBytes(target.resolve("test.txt")),
+                    StandardCharsets.UTF_8));
+            assertEquals("test text file\n", new String(Files.readAllBytes(target.resolve("directoty/test.txt")),
+                    StandardCharsets.UTF_8));
+            assertTrue(Files.isSymbolicLink(target.resolve("test.txt.1")));
+            assertEquals("test.txt", Files.readSymbolicLink(target.resolve("test.txt.1")).toString());
+
+            // existing files are not replaced by default
+            try (AsarFile file = new AsarFile(path)) {
+                assertThrows(FileAlreadyExistsException.class, () -> file.extractTo(target));
+                file.extractTo(target, new ExtractOptions().replaceExisting(true));
+            }
+        } finally {
+            Files.delete(path);
+            deleteRecursively(target);
+        }
+    }
+
+    @Test
+    void extractToEscapingLinks() throws IOException {
+        Path directory = Files.createTempDirectory(null);
+        try {
+            Path target = directory.resolve("target");
+            Path outside = Files.createDirectory(directory.resolve("outside"));
+            byte[] contents = "contents".getBytes(StandardCharsets.UTF_8);
+            String[] links = {"/etc", "../outside", "dir/../../outside"};
+            for (int i = 0; i < links.length; i++) {
+                String link = links[i];
+                Path linkTarget = directory.resolve("link" + i);
+                byte[] asar = Utils.createAsar("{\"files\":{"
+                        + "\"link\":{\"link\":\"" + link + "\"},"
+                        + "\"other\":{\"files\":{\"file\":{\"offset\":\"0\",\"size\":8}}}}}", contents);
+                try (AsarFile file = new AsarFile(ByteBuffer.wrap(asar))) {
+                    assertThrows(AsarException.class, () -> file.extractTo(linkTarget));
+                }
+                assertFalse(Files.exists(linkTarget.resolve("link"), LinkOption.NOFOLLOW_LINKS));
+            }
+
+            // symlink in the target to out of the target
+            Files.createDirectories(target);
+            Files.createSymbolicLink(target.resolve("other"), outside);
+            byte[] asar = Utils.createAsar("{\"files\":{"
+                    + "\"other\":{\"files\":{\"file\":{\"offset\":\"0\",\"size\":8}}}}}", contents);
+            try (AsarFile file = new AsarFile(ByteBuffer.wrap(asar))) {
+                assertThrows(AsarException.class,
+                        () -> file.extractTo(target, new ExtractOptions().replaceExisting(true)));
+            }
+            assertFalse(Files.exists(outside.resolve("file")));
+
+            // existing symlink is replaced, not followed
+            Files.delete(target.resolve("other"));
+            Files.createDirectory(target.resolve("other"));
+            Path outsideFile = Files.write(outside.resolve("victim"), new byte[0]);
+            Files.createSymbolicLink(target.resolve("other/file"), outsideFile);
+            try (AsarFile file = new AsarFile(ByteBuffer.wrap(asar))) {
+                file.extractTo(target, new ExtractOptions().replaceExisting(true));
+            }
+            assertEquals(0, Files.size(outsideFile));
+            assertFalse(Files.isSymbolicLink(target.resolve("other/file")));
+            assertArrayEquals(contents, Files.readAllBytes(target.resolve("other/file")));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void extractToParallel() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++)
+            files.put("file" + i + (i % 2 == 0 ? ".txt" : ".bin"), ("contents of " + i).getBytes(StandardCharsets.UTF_8));
+        byte[] asar = Utils.createAsar(files);
+        Path target = Files.createTempDirectory(null);
+        try {
+            // not FileChannel: copied via transferFrom
+            new AsarFile(new SeekableInMemoryByteChannel(asar), AsarFile.OPEN_LAZY)
+                    .extractTo(target.resolve("channel"), new ExtractOptions().parallelism(4));
+            new AsarFile(ByteBuffer.wrap(asar), AsarFile.OPEN_COMPACT)
+                    .extractTo(target.resolve("mapped"), new ExtractOptions().glob("*.txt"));
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                assertArrayEquals(file.getValue(), Files.readAllBytes(target.resolve("channel").resolve(file.getKey())));
+                Path mapped = target.resolve("mapped").resolve(file.getKey());
+                if (file.getKey().endsWith(".txt"))
+                    assertArrayEquals(file.getValue(), Files.readAllBytes(mapped));
+                else
+                    assertFalse(Files.exists(mapped));
+            }
+        } finally {
+            deleteRecursively(target);
+        }
+    }
+
+    @Test
+    void transferTo() throws IOException {
+        Path path = Files.createTempFile(null, ".asar");
+        Path out = Files.createTempFile(null, ".txt");
+        try {
+            Files.write(path, Utils.getFileAsBytes("test1.asar"));
+            byte[] expected = "test text file\n".getBytes(StandardCharsets.UTF_8);
+            AsarFile[] files = {
+                    new AsarFile(path),
+                    AsarFile.openMapped(path),
+                    new AsarFile(Utils.getFileAsChannel("test1.asar")),
+            };
+            for (AsarFile file : files) {
+                try (AsarFile ignored = file) {
+                    AsarEntry entry = file.getEntry("directoty/test.txt");
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    assertEquals(15, file.transferTo(entry, Channels.newChannel(bytes)));
+                    assertArrayEquals(expected, bytes.toByteArray());
+
+                    // InputStream.transferTo after partial read
+                    try (EntryInputStream input = (EntryInputStream) file.getInputStream(entry);
+                         FileOutputStream output = new FileOutputStream(out.toFile())) {
+                        assertEquals('t', input.read());
+                        assertEquals(14, input.transferTo(output));
+                        assertEquals(-1, input.read());
+                    }
+                    assertArrayEquals(Arrays.copyOfRange(expected, 1, 15), Files.readAllBytes(out));
+
+                    bytes.reset();
+                    try (InputStream input = file.getInputStream(entry)) {
+                        assertEquals(5, input.skip(5));
+                        assertEquals(10, input.available());
+                        assertEquals(10, ((EntryInputStream) input).transferTo(bytes));
+                    }
+                    assertArrayEquals(Arrays.copyOfRange(expected, 5, 15), bytes.toByteArray());
+                }
+            }
+        } finally {
+            Files.delete(path);
+            Files.delete(out);
+        }
+    }
+
+    @Test
+    void integrity() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("empty", new byte[0]);
+        files.put("small", "small file".getBytes(StandardCharsets.UTF_8));
+        files.put("blocks", new byte[40]);
+        byte[] asar = Utils.createAsar(files, 16);
+
+        for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+            AsarFile file = new AsarFile(ByteBuffer.wrap(asar), mode);
+            AsarIntegrity integrity = file.getEntry("blocks").getIntegrity();
+            assertEquals("SHA256", integrity.getAlgorithm());
+            assertEquals(16, integrity.getBlockSize());
+            assertEquals(3, integrity.getBlockCount());
+            assertEquals(32, integrity.getHash().length);
+            assertEquals(1, file.getEntry("empty").getIntegrity().getBlockCount());
+            file.verify();
+        }
+
+        // the short last block is read before a full block
+        AsarFile verifying = new AsarFile(ByteBuffer.wrap(asar), AsarFile.OPEN_VERIFY);
+        try (SeekableByteChannel channel = verifying.getChannel(verifying.getEntry("blocks"))) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            channel.position(32);
+            assertEquals(8, channel.read(buffer));
+            channel.position(0);
+            buffer.clear();
+            assertEquals(16, channel.read(buffer));
+        }
+
+        // modify the second block of "blocks"
+        byte[] modified = asar.clone();
+        modified[modified.length - 40 + 20] = 1;
+        AsarFile file = new AsarFile(ByteBuffer.wrap(modified), AsarFile.OPEN_VERIFY);
+        assertThrows(AsarException.class, file::verify);
+        file.verify(file.getEntry("small"));
+        assertThrows(AsarException.class, () -> file.verify(file.getEntry("blocks")));
+        assertThrows(AsarException.class, () -> file.getByteBuffer(file.getEntry("blocks")));
+
+        // blocks are verified when read
+        try (SeekableByteChannel channel = file.getChannel(file.getEntry("blocks"))) {
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            assertEquals(16, channel.read(buffer));
+            assertThrows(AsarException.class, () -> channel.read(ByteBuffer.allocate(1)));
+            channel.position(32);
+            buffer.clear();
+            assertEquals(8, channel.read(buffer));
+        }
+        assertThrows(AsarException.class, () -> ByteStreams.toByteArray(file.getInputStream(file.getEntry("blocks"))));
+
+        // without OPEN_VERIFY, contents are not verified
+        AsarFile notVerified = new AsarFile(ByteBuffer.wrap(modified));
+        assertEquals(40, ByteStreams.toByteArray(notVerified.getInputStream(notVerified.getEntry("blocks"))).length);
+    }
+
+    @Test
+    void unpacked() throws IOException {
+        byte[] header = ("{\"files\":{" +
+                "\"packed\":{\"size\":6,\"offset\":\"0\"}," +
+                "\"native\":{\"unpacked\":true,\"files\":{\"lib.node\":{\"size\":8,\"unpacked\":true}}}" +
+                "}}").getBytes(StandardCharsets.UTF_8);
+        ByteBuffer asar = ByteBuffer.allocate(16 + header.length + 6).order(ByteOrder.LITTLE_ENDIAN);
+        asar.putInt(4).putInt(header.length + 8).putInt(header.length + 4).putInt(header.length);
+        asar.put(header).put("packed".getBytes(StandardCharsets.UTF_8));
+
+        Path directory = Files.createTempDirectory(null);
+        try {
+            Path path = directory.resolve("app.asar");
+            Files.write(path, asar.array());
+            Files.createDirectories(directory.resolve("app.asar.unpacked/native"));
+            Files.write(directory.resolve("app.asar.unpacked/native/lib.node"), "unpacked".getBytes(StandardCharsets.UTF_8));
+
+            for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+                AsarFile[] files = {new AsarFile(path, mode), AsarFile.openMapped(path, mode)};
+                for (AsarFile file : files) {
+                    try (AsarFile ignored = file) {
+                        assertTrue(file.getEntry("native").isUnpacked());
+                        AsarEntry entry = file.getEntry("native/lib.node");
+                        assertTrue(entry.isUnpacked());
+                        assertFalse(file.getEntry("packed").isUnpacked());
+                        assertEquals("unpacked", new String(ByteStreams.toByteArray(file.getInputStream(entry)),
+                                StandardCharsets.UTF_8));
+                        assertEquals("packed", new String(ByteStreams.toByteArray(
+                                file.getInputStream(file.getEntry("packed"))), StandardCharsets.UTF_8));
+                        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                        assertEquals(8, file.transferTo(entry, Channels.newChannel(bytes)));
+                        assertEquals("unpacked", new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+                    }
+                }
+            }
+
+            // the unpacked directory is unknown
+            AsarFile file = new AsarFile(ByteBuffer.wrap(asar.array()));
+            assertThrows(IllegalStateException.class, () -> file.getInputStream(file.getEntry("native/lib.node")));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    void parallelStream() throws IOException {
+        StringBuilder json = new StringBuilder("{\"files\":{");
+        for (int i = 0; i < 30; i++) {
+            if (i != 0) json.append(',');
+            json.append("\"dir").append(i).append("\":{\"files\":{");
+            for (int j = 0; j < 40; j++) {
+                if (j != 0) json.append(',');
+                json.append("\"file").append(j).append("\":{\"size\":0,\"offset\":\"0\"}");
+            }
+            json.append("}}");
+        }
+        json.append("}}");
+        byte[] header = json.toString().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer asar = ByteBuffer.allocate(16 + header.length).order(ByteOrder.LITTLE_ENDIAN);
+        asar.putInt(4).putInt(header.length + 8).putInt(header.length + 4).putInt(header.length).put(header);
+        int expected = 1 + 30 + 30 * 40;
+
+        for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+            AsarFile file = new AsarFile(ByteBuffer.wrap(asar.array()), mode);
+            Set<String> names = file.stream().parallel()
+                    .map(AsarEntry::getName)
+                    .collect(Collectors.toSet());
+            assertEquals(expected, names.size());
+            assertTrue(names.contains("/dir29/file39"));
+            assertEquals(expected, file.stream().count());
+            if (mode != AsarFile.OPEN_LAZY) {
+                Spliterator<? extends AsarEntry> spliterator = file.stream().spliterator();
+                assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+                assertEquals(expected, spliterator.estimateSize());
+                Spliterator<? extends AsarEntry> prefix = spliterator.trySplit();
+                assertEquals(expected, prefix.estimateSize() + spliterator.estimateSize());
+            } else {
+                // splits subtrees
+                Spliterator<? extends AsarEntry> spliterator = file.stream().spliterator();
+                assertNotNull(spliterator.trySplit());
+            }
+        }
+    }
+
+    @Test
+    void inputStream() throws IOException {
+        byte[] contents = new byte[200 * 1024];
+        new Random(0).nextBytes(contents);
+        byte[] asar = Utils.createAsar(Collections.singletonMap("file", contents));
+
+        for (AsarFile file : new AsarFile[]{new AsarFile(new SeekableInMemoryByteChannel(asar)),
+                new AsarFile(ByteBuffer.wrap(asar))}) {
+            try (InputStream input = file.getInputStream(file.getEntry("file"))) {
+                assertEquals(contents.length, input.available());
+                // byte at a time over read-ahead buffers
+                for (int i = 0; i < 100 * 1024; i++)
+                    assertEquals(contents[i] & 0xFF, input.read());
+                assertTrue(input.markSupported());
+                input.mark(0);
+                assertEquals(1000, input.skip(1000));
+                assertEquals(contents[101 * 1024 + 1000 - 1024] & 0xFF, input.read());
+                input.reset();
+                assertEquals(contents[100 * 1024] & 0xFF, input.read());
+
+                // large read
+                byte[] read = new byte[64 * 1024];
+                assertEquals(read.length, ByteStreams.read(input, read, 0, read.length));
+                assertArrayEquals(Arrays.copyOfRange(contents, 100 * 1024 + 1, 164 * 1024 + 1), read);
+                assertEquals(contents.length - 164 * 1024 - 1, input.available());
+
+                // skip to end
+                assertEquals(contents.length - 164 * 1024 - 1, input.skip(Long.MAX_VALUE));
+                assertEquals(0, input.available());
+                assertEquals(-1, input.read());
+                assertEquals(-1, input.read(read));
+
+                input.reset();
+                assertEquals(contents[100 * 1024] & 0xFF, input.read());
+            }
+        }
+    }
+
+    @Test
+    void readAllBytesAndRead() throws Exception {
+        byte[] contents = new byte[20000];
+        new Random(0).nextBytes(contents);
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("empty", new byte[0]);
+        files.put("file", contents);
+        byte[] asar = Utils.createAsar(files, 4096);
+        Path path = Files.createTempFile(null, ".asar");
+        try {
+            Files.write(path, asar);
+            AsarFile[] asarFiles = {
+                    new AsarFile(path),
+                    new AsarFile(new SeekableInMemoryByteChannel(asar)),
+                    new AsarFile(ByteBuffer.wrap(asar)),
+                    new AsarFile(ByteBuffer.wrap(asar), AsarFile.OPEN_VERIFY),
+            };
+            for (AsarFile file : asarFiles) {
+                try (AsarFile ignored = file) {
+                    AsarEntry entry = file.getEntry("file");
+                    assertArrayEquals(contents, file.readAllBytes(entry));
+                    assertArrayEquals(new byte[0], file.readAllBytes(file.getEntry("empty")));
+
+                    ByteBuffer dst = ByteBuffer.allocate(100);
+                    while (dst.hasRemaining())
+                        assertTrue(file.read(entry, 5000 + dst.position(), dst) > 0);
+                    assertArrayEquals(Arrays.copyOfRange(contents, 5000, 5100), dst.array());
+                    dst.clear();
+                    assertEquals(10, file.read(entry, contents.length - 10, dst));
+                    assertEquals(-1, file.read(entry, contents.length, dst));
+
+                    // shared entry from threads
+                    ExecutorService executor = Executors.newFixedThreadPool(4);
+                    try {
+                        List<Future<Boolean>> results = new ArrayList<>();
+                        for (int i = 0; i < 16; i++) {
+                            int position = i * 1000;
+                            results.add(executor.submit(() -> {
+                                ByteBuffer buffer = ByteBuffer.allocate(1000);
+                                while (buffer.hasRemaining())
+                                    file.read(entry, position + buffer.position(), buffer);
+                                return Arrays.equals(Arrays.copyOfRange(contents, position, position + 1000),
+                                        buffer.array());
+                            }));
+                        }
+                        for (Future<Boolean> result : results)
+                            assertTrue(result.get());
+                    } finally {
+                        executor.shutdown();
+                    }
+                }
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void contentCache() throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("a", new byte[100]);
+        files.put("b", new byte[100]);
+        files.put("c", new byte[100]);
+        files.put("large", new byte[1000]);
+        for (byte[] value : files.values()) new Random(value.length).nextBytes(value);
+        ContentCache cache = new ContentCache(250, 200, true);
+        try (AsarFile file = new AsarFile(new SeekableInMemoryByteChannel(Utils.createAsar(files)))) {
+            file.setContentCache(cache);
+            ByteBuffer a = file.getContents(file.getEntry("a"));
+            assertTrue(a.isReadOnly());
+            assertEquals(ByteBuffer.wrap(files.get("a")), a);
+            a.position(50);
+            assertEquals(ByteBuffer.wrap(files.get("a")), file.getContents(file.getEntry("a")));
+            assertEquals(1, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+
+            // not admitted
+            assertEquals(ByteBuffer.wrap(files.get("large")), file.getContents(file.getEntry("large")));
+            assertEquals(100, cache.getSize());
+
+            // a is used after b so c evicts b
+            file.getContents(file.getEntry("b"));
+            file.getContents(file.getEntry("a"));
+            file.getContents(file.getEntry("c"));
+            assertEquals(1, cache.getEvictionCount());
+            assertEquals(200, cache.getSize());
+            assertEquals(ByteBuffer.wrap(files.get("a")), file.getContents(file.getEntry("a")));
+            assertEquals(ByteBuffer.wrap(files.get("b")), file.getContents(file.getEntry("b")));
+            assertEquals(3, cache.getHitCount());
+        }
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getCount());
+    }
+
+    @Test
+    void readAsync() throws Exception {
+        byte[] contents = new byte[200000];
+        new Random(0).nextBytes(contents);
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("empty", new byte[0]);
+        files.put("file", contents);
+        byte[] asar = Utils.createAsar(files);
+        Path path = Files.createTempFile(null, ".asar");
+        try {
+            Files.write(path, asar);
+            AsarFile[] asarFiles = {
+                    new AsarFile(path),
+                    AsarFile.openMapped(path),
+                    new AsarFile(new SeekableInMemoryByteChannel(asar)),
+            };
+            for (AsarFile file : asarFiles) {
+                try (AsarFile ignored = file) {
+                    AsarEntry entry = file.getEntry("file");
+                    assertEquals(ByteBuffer.wrap(contents), file.readAsync(entry).get());
+                    assertEquals(0, file.readAsync(file.getEntry("empty")).get().remaining());
+
+                    ByteBuffer dst = ByteBuffer.allocate(100);
+                    while (dst.hasRemaining())
+                        assertTrue(file.readAsync(entry, 5000 + dst.position(), dst).get() > 0);
+                    assertArrayEquals(Arrays.copyOfRange(contents, 5000, 5100), dst.array());
+                    assertEquals(-1, (int) file.readAsync(entry, contents.length, dst).get());
+
+                    file.setContentCache(new ContentCache(1 << 20, 1 << 20, false));
+                    assertEquals(ByteBuffer.wrap(contents), file.readAsync(entry).get());
+                    assertEquals(1, file.getContentCache().getCount());
+                    assertEquals(ByteBuffer.wrap(contents), file.readAsync(entry).get());
+                    assertEquals(1, file.getContentCache().getHitCount());
+                }
+            }
+            // mapped mode reads on the calling thread
+            try (AsarFile mapped = AsarFile.openMapped(path)) {
+                assertTrue(mapped.readAsync(mapped.getEntry("file")).isDone());
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    void readBatch() throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 20; i++) {
+            byte[] contents = new byte[random.nextInt(1000)];
+            random.nextBytes(contents);
+            files.put("file" + i, contents);
+        }
+        byte[] asar = Utils.createAsar(files);
+        int[] reads = {0};
+        SeekableInMemoryByteChannel channel = new SeekableInMemoryByteChannel(asar) {
+            @Override
+            public int read(ByteBuffer buf) throws IOException {
+                reads[0]++;
+                return super.read(buf);
+            }
+        };
+        try (AsarFile file = new AsarFile(channel); AsarFile mapped = new AsarFile(ByteBuffer.wrap(asar))) {
+            List<AsarEntry> entries = new ArrayList<>();
+            for (int i = 19; i >= 0; i--)
+                entries.add(file.getEntry("file" + i));
+
+            reads[0] = 0;
+            Map<AsarEntry, ByteBuffer> batch = file.readBatch(entries);
+            assertEquals(1, reads[0]);
+            assertEquals(entries, new ArrayList<>(batch.keySet()));
+            for (AsarEntry entry : entries) {
+                assertTrue(batch.get(entry).isReadOnly());
+                assertEquals(ByteBuffer.wrap(files.get(entry.getName().substring(1))), batch.get(entry));
+            }
 
-        assertSame(file, AsarFile.resolveEntry(listOf("file"), false, root));
-        assertSame(file, AsarFile.resolveEntry(listOf("file"), true, root));
+            // the gap of file10 is not merged
+            entries.remove(file.getEntry("file10"));
+            reads[0] = 0;
+            batch = file.readBatch(entries, 0);
+            assertEquals(2, reads[0]);
+            for (AsarEntry entry : entries)
+                assertEquals(ByteBuffer.wrap(files.get(entry.getName().substring(1))), batch.get(entry));
 
-        assertSame(link, AsarFile.resolveEntry(listOf("link"), false, root));
-        assertSame(file, AsarFile.resolveEntry(listOf("link"), true, root));
+            List<AsarEntry> mappedEntries = Arrays.asList(mapped.getEntry("file3"), mapped.getEntry("file1"));
+            Map<AsarEntry, ByteBuffer> mappedBatch = mapped.readBatch(mappedEntries);
+            for (AsarEntry entry : mappedEntries)
+                assertEquals(ByteBuffer.wrap(files.get(entry.getName().substring(1))), mappedBatch.get(entry));
+        }
+    }
+
+    @Test
+    void accessProfile() throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < 100; i++)
+            files.put("file" + i, ("contents of file" + i).getBytes(StandardCharsets.UTF_8));
+        Path path = Files.createTempFile(null, ".asar");
+        Path profilePath = Files.createTempFile(null, ".profile");
+        try {
+            Files.write(path, Utils.createAsar(files));
+            AccessProfile recording = new AccessProfile();
+            try (AsarFile file = new AsarFile(path)) {
+                file.recordAccess(recording);
+                file.readAllBytes(file.getEntry("file3"));
+                file.getInputStream(file.getEntry("file1")).close();
+                file.readAllBytes(file.getEntry("file3"));
+                file.getContents(file.getEntry("file70"));
+                file.recordAccess(null);
+                file.readAllBytes(file.getEntry("file4"));
+            }
+            assertEquals(Arrays.asList("/file3", "/file1", "/file70"), recording.getNames());
+            recording.write(profilePath);
+
+            AccessProfile profile = AccessProfile.read(profilePath);
+            assertEquals(recording.getNames(), profile.getNames());
+
+            try (AsarFile file = new AsarFile(path)) {
+                ContentCache cache = new ContentCache(1 << 20);
+                file.setContentCache(cache);
+                file.prefetch(profile).get();
+                assertEquals(3, cache.getCount());
+                assertEquals(ByteBuffer.wrap(files.get("file70")), file.getContents(file.getEntry("file70")));
+                assertEquals(1, cache.getHitCount());
+                assertEquals(0, cache.getMissCount());
+            }
+            try (AsarFile file = AsarFile.openMapped(path)) {
+                file.prefetch(profile).get();
+            }
+
+            // compact mode creates entries for each lookup but each entry is recorded once
+            AccessProfile compact = new AccessProfile();
+            try (AsarFile file = AsarFile.openMapped(path, AsarFile.OPEN_COMPACT)) {
+                file.recordAccess(compact);
+                file.transferTo(file.getEntry("file5"), Channels.newChannel(new ByteArrayOutputStream()));
+                assertEquals(1, compact.size());
+                file.readAllBytes(file.getEntry("file9"));
+                file.readAllBytes(file.getEntry("file5"));
+                file.readAllBytes(file.getEntry("file9"));
+            }
+            assertEquals(Arrays.asList("/file5", "/file9"), compact.getNames());
+        } finally {
+            Files.delete(path);
+            Files.delete(profilePath);
+        }
+    }
+
+    @Test
+    void nameQueries() throws Exception {
+        String json = "{\"files\":{"
+                + "\"index.js\":{\"offset\":\"0\",\"size\":0},"
+                + "\".eslintrc\":{\"offset\":\"0\",\"size\":0},"
+                + "\"node_modules\":{\"files\":{"
+                + "\"foo\":{\"files\":{"
+                + "\"index.js\":{\"offset\":\"0\",\"size\":0},"
+                + "\"README.md\":{\"offset\":\"0\",\"size\":0},"
+                + "\"lib\":{\"files\":{\"a.js\":{\"offset\":\"0\",\"size\":0}}}}},"
+                + "\"foobar\":{\"files\":{\"index.js\":{\"offset\":\"0\",\"size\":0}}}}}}}";
+        byte[] header = json.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer asar = ByteBuffer.allocate(16 + header.length).order(ByteOrder.LITTLE_ENDIAN);
+        asar.putInt(4).putInt(header.length + 8).putInt(header.length + 4).putInt(header.length).put(header);
+        for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+            try (AsarFile file = new AsarFile(new SeekableInMemoryByteChannel(asar.array()), mode)) {
+                assertEquals(Arrays.asList("/node_modules/foo/README.md", "/node_modules/foo/index.js",
+                        "/node_modules/foo/lib", "/node_modules/foo/lib/a.js"),
+                        names(file.listPrefix("node_modules/foo/")));
+                assertEquals(Arrays.asList("/index.js", "/node_modules/foo/index.js",
+                        "/node_modules/foo/lib/a.js", "/node_modules/foobar/index.js"),
+                        names(file.byExtension(".js")));
+                assertEquals(Collections.emptyList(), names(file.byExtension("eslintrc")));
+                assertEquals(Arrays.asList("/node_modules/foo/index.js", "/node_modules/foo/lib/a.js"),
+                        names(file.find("node_modules/foo/**.js")));
+                assertEquals(Collections.singletonList("/node_modules/foo/lib/a.js"),
+                        names(file.find("node_modules/*/lib/*.js")));
+                assertEquals(Arrays.asList("/node_modules/foo/index.js", "/node_modules/foobar/index.js"),
+                        names(file.find("node_modules/*/index.{js,mjs}")));
+                assertEquals(Collections.singletonList("/node_modules/foo"), names(file.find("node_modules/foo")));
+                assertEquals(Collections.singletonList("/node_modules/foo/README.md"),
+                        names(file.find("node_modules/foo/[A-Z]*.md")));
+                // the names are matched case-sensitively
+                assertEquals(Collections.emptyList(), names(file.find("NODE_MODULES/**")));
+                assertEquals(Collections.singletonList("/index.js"), names(file.find("?ndex.js")));
+            }
+        }
+    }
 
-        assertSame(directory, AsarFile.resolveEntry(listOf("directory"), false, root));
-        assertSame(directory, AsarFile.resolveEntry(listOf("directory"), true, root));
+    @Test
+    void filesByOffset() throws Exception {
+        // the body is written in the order of the map
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 200; i++)
+            files.put("file" + random.nextInt(100000) + "-" + i, new byte[random.nextInt(3) + 1]);
+        List<String> expected = new ArrayList<>();
+        for (String name : files.keySet())
+            expected.add('/' + name);
+        byte[] asar = Utils.createAsar(files);
+        for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+            try (AsarFile file = new AsarFile(new SeekableInMemoryByteChannel(asar), mode)) {
+                List<String> names = new ArrayList<>();
+                for (AsarEntry entry : file.filesByOffset())
+                    names.add(entry.getName());
+                assertEquals(expected, names);
+                assertSame(file.filesByOffset(), file.filesByOffset());
+            }
+        }
+    }
 
-        assertSame(inDirLink, AsarFile.resolveEntry(listOf("directory", "in-dir-link"), false, root));
-        assertSame(file, AsarFile.resolveEntry(listOf("directory", "in-dir-link"), true, root));
+    @Test
+    void statistics() throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("a", new byte[100]);
+        files.put("b", new byte[200]);
+        byte[] asar = Utils.createAsar(files);
+        for (int mode : new int[]{0, AsarFile.OPEN_LAZY, AsarFile.OPEN_COMPACT}) {
+            try (AsarFile file = new AsarFile(new SeekableInMemoryByteChannel(asar), mode)) {
+                AsarStatistics statistics = file.getStatistics();
+                long[] listened = {0};
+                statistics.setListener(new AsarStatistics.Listener() {
+                    @Override
+                    public void onRead(long bytes, long nanos) {
+                        listened[0] += bytes;
+                    }
+                });
+                assertTrue(statistics.getHeaderParseNanos() > 0);
+                assertNull(file.getEntry("c"));
+                file.readAllBytes(file.getEntry("a"));
+                ByteStreams.toByteArray(file.getInputStream(file.getEntry("b")));
+                assertEquals(2, statistics.getLookupHitCount());
+                assertEquals(1, statistics.getLookupMissCount());
+                assertEquals(1, statistics.getOpenCount());
+                assertEquals(300, statistics.getBytesRead());
+                assertEquals(300, listened[0]);
+                assertTrue(statistics.getReadCount() >= 2);
+                assertTrue(statistics.getLockWaitNanos() >= 0);
+                assertTrue(statistics.getEstimatedHeapSize() > 0);
+            }
+        }
     }
 
-    @SafeVarargs
-    private final <E> List<E> listOf(E... elements) {
-        return new ArrayList<>(Arrays.asList(elements));
+    private static List<String> names(Stream<AsarEntry> entries) {
+        return entries.map(AsarEntry::getName).collect(Collectors.toList());
     }
 
+    private static void deleteRecursively(Path path) throws IOException {
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path child : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new))
+                Files.delete(child);
+        }
+    }
 }
@@ -0,0 +1,57 @@
+package com.anatawa12.asar4j;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsarGlobTest {
+    @Test
+    void wildcards() {
+        AsarGlob glob = AsarGlob.compile("dir/*.js");
+        assertTrue(glob.test("dir/a.js"));
+        assertTrue(glob.test("dir/.js"));
+        assertFalse(glob.test("dir/sub/a.js"));
+        assertFalse(glob.test("dir\\a.js"));
+        assertFalse(glob.test("DIR/a.js"));
+        assertTrue(glob.matchesName("/dir/a.js"));
+        assertFalse(glob.matchesName("/dir/sub/a.js"));
+        assertFalse(AsarGlob.compile("**").matchesName("/"));
+
+        assertTrue(AsarGlob.compile("dir/**.js").test("dir/sub/a.js"));
+        assertTrue(AsarGlob.compile("dir/**").test("dir/sub/a.js"));
+        assertTrue(AsarGlob.compile("?.txt").test("a.txt"));
+        assertFalse(AsarGlob.compile("a?b").test("a/b"));
+    }
+
+    @Test
+    void bracketsAndGroups() {
+        AsarGlob range = AsarGlob.compile("[a-c]x");
+        assertTrue(range.test("bx"));
+        assertFalse(range.test("dx"));
+        AsarGlob negated = AsarGlob.compile("[!a-c]x");
+        assertTrue(negated.test("dx"));
+        assertFalse(negated.test("ax"));
+        assertFalse(negated.test("/x"));
+        assertTrue(AsarGlob.compile("[-]").test("-"));
+        assertTrue(AsarGlob.compile("[]]").test("]"));
+        assertTrue(AsarGlob.compile("[&&]").test("&"));
+
+        AsarGlob group = AsarGlob.compile("index.{js,mjs}");
+        assertTrue(group.test("index.js"));
+        assertTrue(group.test("index.mjs"));
+        assertFalse(group.test("index.cjs"));
+        assertThrows(IllegalArgumentException.class, () -> AsarGlob.compile("{a,{b}}"));
+        assertThrows(IllegalArgumentException.class, () -> AsarGlob.compile("[ab"));
+    }
+
+    @Test
+    void literals() {
+        assertTrue(AsarGlob.compile("a+b(c).$").test("a+b(c).$"));
+        assertTrue(AsarGlob.compile("\\*").test("*"));
+        assertFalse(AsarGlob.compile("\\*").test("a"));
+        assertTrue(AsarGlob.compile("a,b}").test("a,b}"));
+        assertThrows(IllegalArgumentException.class, () -> AsarGlob.compile("a\\"));
+    }
+}
@@ -0,0 +1,130 @@
+package com.anatawa12.asar4j;
+
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsarIndexFileTest {
+    @Test
+    void indexed() throws IOException {
+        Path directory = Files.createTempDirectory(null);
+        Path path = directory.resolve("test.asar");
+        Path index = directory.resolve("test.asar.idx");
+        try {
+            Files.write(path, Utils.getFileAsBytes("test1.asar"));
+            Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000));
+
+            // generate
+            assertFalse(Files.exists(index));
+            try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                checkTest1(file);
+            }
+            assertTrue(Files.exists(index));
+            byte[] generated = Files.readAllBytes(index);
+
+            // use index
+            try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                checkTest1(file);
+            }
+            assertArrayEquals(generated, Files.readAllBytes(index));
+
+            // touched: header is not changed so index is reused
+            Files.setLastModifiedTime(path, FileTime.fromMillis(2_000_000));
+            try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                checkTest1(file);
+            }
+            assertEquals(generated.length, Files.readAllBytes(index).length);
+
+            // changed: regenerate
+            Files.write(path, Utils.createAsar(Collections.singletonMap(
+                    "other.txt", "other\n".getBytes(StandardCharsets.UTF_8))));
+            try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                assertNull(file.getEntry("test.txt"));
+                assertArrayEquals("other\n".getBytes(StandardCharsets.UTF_8),
+                        ByteStreams.toByteArray(file.getInputStream(file.getEntry("other.txt"))));
+            }
+
+            // broken: regenerate
+            Files.write(index, new byte[]{1, 2, 3});
+            try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                assertNotNull(file.getEntry("other.txt"));
+            }
+            assertTrue(Files.size(index) > 3);
+        } finally {
+            Files.deleteIfExists(index);
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    void brokenTable() throws IOException {
+        Path directory = Files.createTempDirectory(null);
+        Path path = directory.resolve("test.asar");
+        Path index = directory.resolve("test.asar.idx");
+        try {
+            Files.write(path, Utils.getFileAsBytes("test1.asar"));
+            try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                checkTest1(file);
+            }
+            byte[] generated = Files.readAllBytes(index);
+            ByteBuffer table = ByteBuffer.wrap(generated).order(ByteOrder.LITTLE_ENDIAN);
+            table.position(72);
+            table = table.slice().order(ByteOrder.LITTLE_ENDIAN);
+            int count = table.getInt(0);
+            int childrenCount = table.getInt(4);
+            int nameCount = table.getInt(8);
+            int flags = 20 + count * 8;
+            int parents = flags + count * 8;
+            int nameIds = parents + count * 4;
+            int children = nameIds + count * 8;
+            int nameOffsets = children + childrenCount * 4;
+
+            // the size is valid but the contents are broken
+            int[][] corruptions = {
+                    {flags + 4, 3},
+                    {parents, 0},
+                    {parents + 4, 5},
+                    {nameIds + 4, nameCount},
+                    {children, 0},
+                    {children, count},
+                    {nameOffsets + nameCount * 4, -1},
+            };
+            for (int[] corruption : corruptions) {
+                byte[] broken = generated.clone();
+                ByteBuffer.wrap(broken).order(ByteOrder.LITTLE_ENDIAN).putInt(72 + corruption[0], corruption[1]);
+                Files.write(index, broken);
+                try (AsarFile file = AsarFile.openIndexed(path, index)) {
+                    checkTest1(file);
+                }
+                assertArrayEquals(generated, Files.readAllBytes(index));
+            }
+        } finally {
+            Files.deleteIfExists(index);
+            Files.deleteIfExists(path);
+            Files.delete(directory);
+        }
+    }
+
+    private void checkTest1(AsarFile file) throws IOException {
+        assertEquals(AsarEntryType.LINK, file.getEntry("test.txt.1", false).getType());
+        assertArrayEquals("test text file\n".getBytes(StandardCharsets.UTF_8),
+                ByteStreams.toByteArray(file.getInputStream(file.getEntry("test.txt.1"))));
+        assertEquals(new AsarFile(Utils.getFileAsChannel("test1.asar")).size(), file.size());
+    }
+}
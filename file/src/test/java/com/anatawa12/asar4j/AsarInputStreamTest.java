@@ -0,0 +1,94 @@
+package com.anatawa12.asar4j;
+
+import com.google.common.io.ByteStreams;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class AsarInputStreamTest {
+    @Test
+    void entries() throws IOException {
+        List<String> names = new ArrayList<>();
+        try (AsarInputStream stream = new AsarInputStream(
+                new ByteArrayInputStream(Utils.getFileAsBytes("test1.asar")))) {
+            AsarEntry entry;
+            while ((entry = stream.getNextEntry()) != null) {
+                names.add(entry.getName());
+                switch (entry.getType()) {
+                    case FILE:
+                        assertArrayEquals("test text file\n".getBytes(StandardCharsets.UTF_8),
+                                ByteStreams.toByteArray(stream));
+                        break;
+                    case LINK:
+                        assertEquals("test.txt", entry.getLinkTarget());
+                        assertEquals(-1, stream.read());
+                        break;
+                    default:
+                        assertEquals(-1, stream.read());
+                        break;
+                }
+            }
+        }
+        // directories and links first, then files in offset order
+        assertEquals(Arrays.asList("/directoty", "/test.txt.1", "/directoty/test.txt", "/test.txt"), names);
+    }
+
+    @Test
+    void nonSeekableSource() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        Random random = new Random(0);
+        for (int i = 0; i < 50; i++) {
+            byte[] contents = new byte[random.nextInt(10000)];
+            random.nextBytes(contents);
+            files.put("file" + i, contents);
+        }
+        // skip is not supported like pipes
+        InputStream source = new FilterInputStream(new ByteArrayInputStream(Utils.createAsar(files))) {
+            @Override
+            public long skip(long n) {
+                return 0;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                // returns fragments like network streams
+                return super.read(b, off, Math.min(len, 1000));
+            }
+        };
+        try (AsarInputStream stream = new AsarInputStream(source)) {
+            for (int i = 0; i < 50; i++) {
+                AsarEntry entry = stream.getNextEntry();
+                byte[] expected = files.get("file" + i);
+                assertEquals("/file" + i, entry.getName());
+                assertEquals(expected.length, entry.getSize());
+                if (i % 3 == 0) {
+                    // skip the contents
+                    continue;
+                }
+                if (i % 3 == 1 && expected.length > 10) {
+                    // read a part of the contents
+                    byte[] read = new byte[10];
+                    assertEquals(10, ByteStreams.read(stream, read, 0, 10));
+                    assertArrayEquals(Arrays.copyOf(expected, 10), read);
+                    continue;
+                }
+                assertArrayEquals(expected, ByteStreams.toByteArray(stream));
+            }
+            assertNull(stream.getNextEntry());
+        }
+    }
+}
@@ -3,7 +3,7 @@ package com.anatawa12.asar4j;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -45,6 +45,18 @@ class JsonReaderTest {
         assertThrows(AsarException.class, () -> reader("\"\\a\"").readString());
     }
 
+    @Test
+    void nonAscii() throws IOException {
+        assertEquals("\u65e5\u672c\u8a9e", reader("\"\u65e5\u672c\u8a9e\"").readString());
+        assertEquals("\u65e5\n\u672c\ud842\udfb7", reader("\"\u65e5\\n\u672c\ud842\udfb7\"").readString());
+    }
+
+    @Test
+    void malformedUtf8() {
+        JsonReader reader = new JsonReader(new byte[]{'"', (byte) 0xC0, '"'});
+        assertThrows(AsarException.class, reader::readString);
+    }
+
     @Test
     void readString() throws IOException {
         assertEquals("something", reader("\"something\"").readString());
@@ -68,6 +80,8 @@ class JsonReaderTest {
         assertEquals(10.0e2, reader("10.0e2").readNumber());
         assertEquals(-10, reader("-10").readNumber());
 
+        assertEquals(12345678901234567890.0, reader("12345678901234567890").readNumber());
+
         // space skipping
         JsonReader reader = reader("  10-11 -12");
         assertEquals(10, reader.readNumber());
@@ -75,6 +89,16 @@ class JsonReaderTest {
         assertEquals(-12, reader.readNumber());
     }
 
+    @Test
+    void readLongString() throws IOException {
+        assertEquals(100, reader("\"100\"").readLongString());
+        assertEquals(-100, reader("\"-100\"").readLongString());
+        assertEquals(Long.MAX_VALUE, reader("\"" + Long.MAX_VALUE + "\"").readLongString());
+        assertEquals(100, reader("\"\\u0031\\u0030\\u0030\"").readLongString());
+        assertThrows(NumberFormatException.class, () -> reader("\"\"").readLongString());
+        assertThrows(NumberFormatException.class, () -> reader("\"10a\"").readLongString());
+    }
+
     //endregion
 
     //region booleans
@@ -110,9 +134,51 @@ class JsonReaderTest {
         reader.readOpt(',');
     }
 
+    @Test
+    void readKeyIndex() throws IOException {
+        byte[][] keys = JsonReader.keys("files", "size");
+        JsonReader reader = reader("{\"size\":1,\"files\":2,\"fil\\u0065s\":3,\"other\":4}");
+        reader.read('{');
+        assertEquals(1, reader.readKey(keys));
+        reader.skipValue();
+        reader.readOpt(',');
+        assertEquals(0, reader.readKey(keys));
+        reader.skipValue();
+        reader.readOpt(',');
+        assertEquals(0, reader.readKey(keys));
+        reader.skipValue();
+        reader.readOpt(',');
+        assertEquals(-1, reader.readKey(keys));
+        assertEquals(4, reader.readNumber());
+    }
+
+    @Test
+    void skipValue() throws IOException {
+        JsonReader reader = reader("{\"key\":{\"size\":10,\"array\":[1,\"\\u0041\",true]}, \"next\": false}");
+        reader.read('{');
+        assertEquals("key", reader.readKey());
+        reader.skipValue();
+        reader.readOpt(',');
+        assertEquals("next", reader.readKey());
+        assertFalse(reader.readBoolean());
+        reader.read('}');
+    }
+
+    @Test
+    void position() throws IOException {
+        JsonReader reader = reader("{ \"key\" :  {}}");
+        reader.read('{');
+        assertEquals("key", reader.readKey());
+        reader.cur();
+        assertEquals(11, reader.position());
+        reader.skipValue();
+        reader.cur();
+        assertEquals(13, reader.position());
+    }
+
     //endregion
 
     JsonReader reader(String body) {
-        return new JsonReader(new StringReader(body));
+        return new JsonReader(body.getBytes(StandardCharsets.UTF_8));
     }
 }
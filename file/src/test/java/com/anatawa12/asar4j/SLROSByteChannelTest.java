@@ -0,0 +1,140 @@
+package com.anatawa12.asar4j;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class SLROSByteChannelTest {
+    private static final int ENTRIES = 16;
+    private static final int ENTRY_SIZE = 4 * 1024;
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 4;
+
+    // the throughput is measured by ReadBenchmark in benchmarks project
+    @Test
+    void concurrentReads() throws Exception {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < ENTRIES; i++) {
+            byte[] body = new byte[ENTRY_SIZE];
+            for (int j = 0; j < body.length; j++)
+                body[j] = (byte) (i * 31 + j / 7);
+            files.put("file" + i, body);
+        }
+        Path path = Files.createTempFile(null, ".asar");
+        try {
+            Files.write(path, Utils.createAsar(files));
+            // FileChannel: positional read without lock
+            try (AsarFile file = new AsarFile(path)) {
+                readAll(file, files);
+            }
+            // non-FileChannel: reads with the lock of AsarFile
+            try (AsarFile file = new AsarFile(new DelegateChannel(FileChannel.open(path, StandardOpenOption.READ)))) {
+                readAll(file, files);
+            }
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    // each thread reads and verifies all entries from different positions
+    private void readAll(AsarFile file, Map<String, byte[]> files) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int first = t;
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < ROUNDS; round++) {
+                        for (int k = 0; k < ENTRIES; k++) {
+                            String name = "file" + (first + k) % ENTRIES;
+                            int position = (first * 1000 + round * 100 + k) % ENTRY_SIZE;
+                            byte[] expected = files.get(name);
+                            assertArrayEquals(Arrays.copyOfRange(expected, position, expected.length),
+                                    read(file, name, position));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures)
+                future.get();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private byte[] read(AsarFile file, String name, int position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_SIZE - position);
+        try (SeekableByteChannel channel = file.getChannel(file.getEntry(name))) {
+            channel.position(position);
+            while (buffer.hasRemaining() && channel.read(buffer) != -1) ;
+        }
+        return buffer.array();
+    }
+
+    private static class DelegateChannel implements SeekableByteChannel {
+        private final SeekableByteChannel channel;
+
+        DelegateChannel(SeekableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return channel.position();
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            channel.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return channel.size();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            channel.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
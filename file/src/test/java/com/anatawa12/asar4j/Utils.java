@@ -3,9 +3,15 @@ package com.anatawa12.asar4j;
 import com.google.common.io.ByteStreams;
 import org.apache.commons.compress.utils.SeekableInMemoryByteChannel;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
 import java.util.Objects;
 
 public class Utils {
@@ -21,4 +27,67 @@ public class Utils {
         return ByteStreams.toByteArray(Objects.requireNonNull(
                 Utils.class.getClassLoader().getResourceAsStream(name)));
     }
+
+    // creates asar file with files on root directory.
+    static byte[] createAsar(Map<String, byte[]> files) throws IOException {
+        return createAsar(files, 0);
+    }
+
+    // creates asar file with files on root directory. if blockSize is not 0, integrity is written.
+    static byte[] createAsar(Map<String, byte[]> files, int blockSize) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        StringBuilder json = new StringBuilder("{\"files\":{");
+        boolean first = true;
+        for (Map.Entry<String, byte[]> file : files.entrySet()) {
+            if (!first) json.append(',');
+            first = false;
+            json.append('"').append(file.getKey()).append("\":{\"offset\":\"").append(body.size())
+                    .append("\",\"size\":").append(file.getValue().length);
+            if (blockSize != 0) appendIntegrity(json, file.getValue(), blockSize);
+            json.append('}');
+            body.write(file.getValue());
+        }
+        json.append("}}");
+        return createAsar(json.toString(), body.toByteArray());
+    }
+
+    // creates asar file with the json header and the body
+    static byte[] createAsar(String json, byte[] body) throws IOException {
+        byte[] header = json.getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer sizes = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        sizes.putInt(4).putInt(header.length + 8).putInt(header.length + 4).putInt(header.length);
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        result.write(sizes.array());
+        result.write(header);
+        result.write(body);
+        return result.toByteArray();
+    }
+
+    // the integrity in the same format as electron/asar
+    private static void appendIntegrity(StringBuilder json, byte[] contents, int blockSize) {
+        json.append(",\"integrity\":{\"algorithm\":\"SHA256\",\"hash\":\"")
+                .append(sha256(contents, 0, contents.length))
+                .append("\",\"blockSize\":").append(blockSize).append(",\"blocks\":[");
+        int offset = 0;
+        do {
+            if (offset != 0) json.append(',');
+            int length = Math.min(blockSize, contents.length - offset);
+            json.append('"').append(sha256(contents, offset, length)).append('"');
+            offset += length;
+        } while (offset < contents.length);
+        json.append("]}");
+    }
+
+    private static String sha256(byte[] bytes, int offset, int length) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(bytes, offset, length);
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
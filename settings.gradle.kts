@@ -4,3 +4,4 @@ include("common")
 include("file")
 include("writer")
 include("url")
+include("benchmarks")
@@ -1,6 +1,7 @@
 package com.anatawa12.asar4j.internal.asar;
 
 import com.anatawa12.asar4j.AsarFile;
+import com.anatawa12.asar4j.internal.AsarEvents;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -44,6 +45,13 @@ class AsarFileFactory {
     }
 
     private AsarFile createURLAsarFile(URL url) throws IOException {
+        Object event = AsarEvents.beginCacheLoad();
+        AsarFile file = createURLAsarFile0(url);
+        if (event != null) AsarEvents.endCacheLoad(event, url.toString(), !isLocalFileUrl(url));
+        return file;
+    }
+
+    private AsarFile createURLAsarFile0(URL url) throws IOException {
         if (isLocalFileUrl(url)) {
             try {
                 return new AsarFile(Paths.get(new URI("file:" + url.getFile())));
@@ -1,5 +1,7 @@
 package com.anatawa12.asar4j;
 
+import com.anatawa12.asar4j.internal.AsarEvents;
+
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -254,6 +256,8 @@ public class AsarOutputStream extends OutputStream {
         // for erasure concurrent operation
         ByteArrayOutputStream bodyBuffer = this.bodyBuffer;
         this.bodyBuffer = null;
+        Object event = AsarEvents.beginWrite();
+        long headerSize;
 
         // header
         {
@@ -275,10 +279,12 @@ public class AsarOutputStream extends OutputStream {
 
             out.write(buffer.array());
             header.writeTo(out);
+            headerSize = buffer.capacity() + header.size();
         }
 
         // body
         bodyBuffer.writeTo(out);
+        if (event != null) AsarEvents.endWrite(event, headerSize, bodyBuffer.size());
     }
 
     @Override